@@ -0,0 +1,366 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Evaluates the achievements as events arrive instead of scanning history. The
+ * state is a handful of counters plus two 64-day bitsets (days with a completion,
+ * and perfect days), all anchored at bitsDay: bit i stands for day bitsDay - i.
+ * Every event updates them in constant time and checks only the achievements of
+ * the kind it touched. Writing the state back is queued on the database writer
+ * (db.submitAction), so the event thread never waits on a commit; states queued
+ * while a write is pending collapse into that one write.
+ *
+ * daily_login does not count as completing a task. A day is perfect when it had
+ * a completion and nothing was left to become overdue from it. With an allDone
+ * test that is known as soon as the last task due that day is completed;
+ * otherwise (or if the day is finished off some other way) it is decided by the
+ * next day's penalty pass, when DayRolledOver closes the day. A day marked
+ * perfect early stays perfect even if a task is put on it afterwards.
+ */
+public class AchievementEngine {
+
+    public static final int COMPLETIONS = 0;    // total completed tasks
+    public static final int RUN_DAYS = 1;       // consecutive days with a completion
+    public static final int PERFECT_WEEK = 2;   // seven consecutive perfect days
+
+    /** One achievement: what unlocks it, and how ProfilePage shows it. */
+    public static final class Achievement {
+        public final String code;
+        public final int kind;
+        public final int threshold;
+        public final String imageFile, title, subtitle, color, requirement;
+
+        Achievement(String code, int kind, int threshold, String imageFile, String title,
+                    String subtitle, String color, String requirement) {
+            this.code = code;
+            this.kind = kind;
+            this.threshold = threshold;
+            this.imageFile = imageFile;
+            this.title = title;
+            this.subtitle = subtitle;
+            this.color = color;
+            this.requirement = requirement;
+        }
+    }
+
+    public static final List<Achievement> ALL = List.of(
+        new Achievement("run_20", RUN_DAYS, 20, "20_day_streak.png", "20 Day Streak", "Consistency Master", "#f59e0b", "Complete 20 consecutive days"),
+        new Achievement("first_task", COMPLETIONS, 1, "getting_started.png", "Getting Started", "First Steps", "#10b981", "Complete your first task"),
+        new Achievement("tasks_100", COMPLETIONS, 100, "100_tasks.png", "100 Tasks", "Task Master", "#8b5cf6", "Complete 100 total tasks"),
+        new Achievement("run_365", RUN_DAYS, 365, "365_day_streak.png", "365 Day Streak", "Legendary", "#f59e0b", "Complete 365 consecutive days"),
+        new Achievement("tasks_1000", COMPLETIONS, 1000, "1000_tasks.png", "1000 Tasks", "Ultimate Master", "#10b981", "Complete 1000 total tasks"),
+        new Achievement("perfect_week", PERFECT_WEEK, 7, "perfect_week.png", "Perfect Week", "Flawless", "#8b5cf6", "Complete all tasks for 7 consecutive days")
+    );
+
+    private static final long NEVER = TaskRepository.NEVER;
+
+    private final Database db;
+    private final LongPredicate allDone;
+    private final Map<String, Long> unlockedAt = new ConcurrentHashMap<>();
+    private EventBus.Subscription subscription;
+    private long droppedSeen;
+
+    // state; guarded by this
+    private long completions;
+    private int runDays;
+    private long runEnd = NEVER;
+    private long bitsDay = NEVER;
+    private long activeBits;
+    private long perfectBits;
+    private long penalizedDay = NEVER;
+    private final List<String> pending = new ArrayList<>();   // unlocked, not yet saved
+    private final List<Long> pendingDays = new ArrayList<>();
+
+    // The newest state not yet written; a write is queued whenever it is non-null
+    private final Object saveLock = new Object();
+    private State unsaved;
+
+    /** Counters and unlocks as of one event, for a queued write. */
+    private static final class State {
+        long completions, runEnd, bitsDay, activeBits, perfectBits, penalizedDay;
+        int runDays;
+        final List<String> codes = new ArrayList<>();
+        final List<Long> at = new ArrayList<>();
+        final List<Long> days = new ArrayList<>();
+    }
+
+    public AchievementEngine(Database db) {
+        this(db, day -> false);
+    }
+
+    /** allDone tells whether nothing due on or before a day is left undone (see the class comment). */
+    public AchievementEngine(Database db, LongPredicate allDone) {
+        this.db = db;
+        this.allDone = allDone;
+    }
+
+    /** Epoch millis at which code was unlocked, or 0 if it is still locked. */
+    public long unlockedAt(String code) {
+        Long t = unlockedAt.get(code);
+        return t == null ? 0 : t;
+    }
+
+    public boolean isUnlocked(String code) {
+        return unlockedAt.containsKey(code);
+    }
+
+    /**
+     * Read the saved state. On the first run (no state row yet) it is built by
+     * replaying task_completions, with each unlock stamped at the completion that
+     * earned it; perfect days cannot be recovered from history and start empty.
+     */
+    public synchronized void load() throws SQLException {
+        db.runWrite(c -> {
+            boolean found = false;
+            try (ResultSet rs = db.prepare(c,
+                    "SELECT completions, run_days, run_end, bits_day, active_bits, perfect_bits, penalized_day " +
+                    "FROM achievement_state WHERE id = 1").executeQuery()) {
+                if (rs.next()) {
+                    found = true;
+                    completions = rs.getLong(1);
+                    runDays = rs.getInt(2);
+                    runEnd = rs.getLong(3);
+                    bitsDay = rs.getLong(4);
+                    activeBits = rs.getLong(5);
+                    perfectBits = rs.getLong(6);
+                    penalizedDay = rs.getLong(7);
+                }
+            }
+            if (!found) {
+                replay(c);
+                save(c);
+            }
+            unlockedAt.clear();
+            try (ResultSet rs = db.prepare(c, "SELECT code, unlocked_at FROM achievements").executeQuery()) {
+                while (rs.next()) unlockedAt.put(rs.getString(1), rs.getLong(2));
+            }
+        });
+    }
+
+    /**
+     * Feed the engine from bus. Events of every type share one queue so a day's
+     * completions, penalties and rollover are seen in the order they committed. If
+     * the bus ever drops one, the counters are recounted from history (see rebuild).
+     */
+    public synchronized void attach(EventBus bus) {
+        subscription = bus.subscribe(Object.class, 4 * EventBus.DEFAULT_CAPACITY, this::onEvent);
+    }
+
+    private synchronized void onEvent(Object event) {
+        try {
+            if (subscription != null && subscription.dropped() != droppedSeen) {
+                droppedSeen = subscription.dropped();
+                rebuild();
+                return;
+            }
+            if (event instanceof XpEvents.TaskCompleted) {
+                XpEvents.TaskCompleted e = (XpEvents.TaskCompleted) event;
+                if ("daily_login".equals(e.taskName)) return;
+                long at = System.currentTimeMillis();
+                completed(e.day, at);
+                if (allDone.test(e.day)) markPerfect(e.day, at);
+            } else if (event instanceof XpEvents.PenaltyApplied) {
+                penalizedDay = Math.max(penalizedDay, ((XpEvents.PenaltyApplied) event).day);
+            } else if (event instanceof XpEvents.DayRolledOver) {
+                dayClosed(((XpEvents.DayRolledOver) event).day - 1, System.currentTimeMillis());
+            } else {
+                return;
+            }
+            queueSave();
+        } catch (SQLException e) {
+            System.err.println("Achievements: could not rebuild state: " + e.getMessage());
+        }
+    }
+
+    /** Hand the current state to the writer; the caller holds this. */
+    private void queueSave() {
+        boolean submit;
+        synchronized (saveLock) {
+            submit = unsaved == null;
+            unsaved = takeState();
+        }
+        if (!submit) return;
+        db.submitAction(c -> {
+            State s;
+            synchronized (saveLock) {
+                s = unsaved;
+                unsaved = null;
+            }
+            if (s != null) write(c, s);
+        }).whenComplete((v, ex) -> {
+            if (ex != null) System.err.println("Achievements: could not save state: " + ex.getMessage());
+        });
+    }
+
+    /** The current state, plus the unlocks of any state not yet written, which it replaces. */
+    private State takeState() {
+        State s = new State();
+        synchronized (saveLock) {
+            if (unsaved != null) {
+                s.codes.addAll(unsaved.codes);
+                s.at.addAll(unsaved.at);
+                s.days.addAll(unsaved.days);
+                unsaved = null;
+            }
+        }
+        s.completions = completions;
+        s.runDays = runDays;
+        s.runEnd = runEnd;
+        s.bitsDay = bitsDay;
+        s.activeBits = activeBits;
+        s.perfectBits = perfectBits;
+        s.penalizedDay = penalizedDay;
+        for (int i = 0; i < pending.size(); i++) {
+            s.codes.add(pending.get(i));
+            s.at.add(unlockedAt.get(pending.get(i)));
+            s.days.add(pendingDays.get(i));
+        }
+        pending.clear();
+        pendingDays.clear();
+        return s;
+    }
+
+    /**
+     * Recount what task_completions can tell (completions, the run of days, days
+     * with a completion) after events were lost. Perfect days and the last
+     * penalized day cannot be replayed, so they are carried over; unlocks are only
+     * ever added, so an earned one keeps its unlocked_at.
+     */
+    public synchronized void rebuild() throws SQLException {
+        State queued = takeState();   // unlocks not written yet; a queued write now finds nothing
+        db.runWrite(c -> {
+            long keptDay = bitsDay, keptPerfect = perfectBits;
+            if (keptDay == NEVER) {
+                // not loaded: carry over the saved perfect days instead
+                try (ResultSet rs = db.prepare(c,
+                        "SELECT bits_day, perfect_bits, penalized_day FROM achievement_state WHERE id = 1").executeQuery()) {
+                    if (rs.next()) {
+                        keptDay = rs.getLong(1);
+                        keptPerfect = rs.getLong(2);
+                        penalizedDay = Math.max(penalizedDay, rs.getLong(3));
+                    }
+                }
+            }
+            write(c, queued);
+            // the saved unlocks, timestamps included, so replay does not stamp them again
+            try (ResultSet rs = db.prepare(c, "SELECT code, unlocked_at FROM achievements").executeQuery()) {
+                while (rs.next()) unlockedAt.put(rs.getString(1), rs.getLong(2));
+            }
+            completions = 0;
+            runDays = 0;
+            runEnd = bitsDay = NEVER;
+            activeBits = perfectBits = 0;
+            replay(c);
+            if (keptDay != NEVER) {
+                advance(keptDay);
+                long shift = bitsDay - keptDay;
+                perfectBits = shift >= 64 ? 0 : keptPerfect << shift;
+            }
+            save(c);
+        });
+    }
+
+    /** Count task_completions into the state; check() skips what is already unlocked. */
+    private void replay(Connection c) throws SQLException {
+        try (ResultSet rs = db.prepare(c,
+                "SELECT tc.day, tc.done_at FROM task_completions tc JOIN tasks t ON t.id = tc.task_id " +
+                "WHERE t.name <> 'daily_login' ORDER BY tc.day, tc.id").executeQuery()) {
+            while (rs.next()) completed(rs.getLong(1), rs.getLong(2));
+        }
+    }
+
+    // -------------------- counters --------------------------------------------
+
+    private void completed(long day, long at) {
+        completions++;
+        check(COMPLETIONS, completions, day, at);
+
+        if (runEnd == NEVER || day > runEnd + 1) {
+            runDays = 1;
+            runEnd = day;
+        } else if (day == runEnd + 1) {
+            runDays++;
+            runEnd = day;
+        }
+        check(RUN_DAYS, runDays, day, at);
+
+        advance(day);
+        int i = bit(day);
+        if (i >= 0) activeBits |= 1L << i;
+    }
+
+    /** day is over: it was perfect if something was done and the next day's penalty pass was clean. */
+    private void dayClosed(long day, long at) {
+        advance(day);
+        int i = bit(day);
+        if (i < 0 || (activeBits & (1L << i)) == 0 || penalizedDay == day + 1) return;
+        markPerfect(day, at);
+    }
+
+    private void markPerfect(long day, long at) {
+        int i = bit(day);
+        if (i < 0 || (perfectBits & (1L << i)) != 0) return;
+        perfectBits |= 1L << i;
+        if (i <= 64 - 7 && ((perfectBits >>> i) & 0x7F) == 0x7F) check(PERFECT_WEEK, 7, day, at);
+    }
+
+    /** Move the bitset anchor forward to day; bits older than 64 days fall off. */
+    private void advance(long day) {
+        if (bitsDay != NEVER && day <= bitsDay) return;
+        long shift = bitsDay == NEVER ? 64 : day - bitsDay;
+        activeBits = shift >= 64 ? 0 : activeBits << shift;
+        perfectBits = shift >= 64 ? 0 : perfectBits << shift;
+        bitsDay = day;
+    }
+
+    /** Bit index of day, or -1 if it is outside the 64-day window. */
+    private int bit(long day) {
+        long i = bitsDay - day;
+        return i >= 0 && i < 64 ? (int) i : -1;
+    }
+
+    private void check(int kind, long value, long day, long at) {
+        for (Achievement a : ALL) {
+            if (a.kind == kind && value >= a.threshold && unlockedAt.putIfAbsent(a.code, at) == null) {
+                pending.add(a.code);
+                pendingDays.add(day);
+            }
+        }
+    }
+
+    /** Write the current state now; for load and rebuild, which are already on the writer. */
+    private void save(Connection c) throws SQLException {
+        write(c, takeState());
+    }
+
+    private void write(Connection c, State s) throws SQLException {
+        PreparedStatement ps = db.prepare(c,
+            "INSERT OR REPLACE INTO achievement_state(id, completions, run_days, run_end, bits_day, active_bits, perfect_bits, penalized_day) " +
+            "VALUES(1,?,?,?,?,?,?,?)");
+        ps.setLong(1, s.completions);
+        ps.setInt(2, s.runDays);
+        ps.setLong(3, s.runEnd);
+        ps.setLong(4, s.bitsDay);
+        ps.setLong(5, s.activeBits);
+        ps.setLong(6, s.perfectBits);
+        ps.setLong(7, s.penalizedDay);
+        ps.executeUpdate();
+
+        if (s.codes.isEmpty()) return;
+        PreparedStatement ins = db.prepare(c, "INSERT OR IGNORE INTO achievements(code, unlocked_at, day) VALUES(?,?,?)");
+        for (int i = 0; i < s.codes.size(); i++) {
+            ins.setString(1, s.codes.get(i));
+            ins.setLong(2, s.at.get(i));
+            ins.setLong(3, s.days.get(i));
+            ins.addBatch();
+        }
+        ins.executeBatch();
+    }
+}
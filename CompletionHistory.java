@@ -0,0 +1,132 @@
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * One task's completion days as a bitset: bit i is day base + i, with base
+ * aligned to a 64-day word. Streaks and counts are answered with word-level
+ * BitSet scans (previousClearBit, nextSetBit, cardinality) rather than by
+ * walking the completion log.
+ *
+ * A streak is a chain of completions each no more than the task's frequency
+ * apart (consecutive days for a daily task); it is current while the next due
+ * day has not passed. Serialized it is the base plus the used words, about
+ * 470 bytes for ten years of daily history.
+ */
+public final class CompletionHistory {
+
+    private static final long NEVER = TaskRepository.NEVER;
+
+    private long base = NEVER;
+    private BitSet bits = new BitSet();
+
+    public boolean isEmpty() { return bits.isEmpty(); }
+
+    public boolean get(long day) {
+        long i = day - base;
+        return base != NEVER && i >= 0 && i < Integer.MAX_VALUE && bits.get((int) i);
+    }
+
+    public void set(long day) {
+        long wordStart = Math.floorDiv(day, 64L) * 64L;
+        if (base == NEVER) {
+            base = wordStart;
+        } else if (day < base) {
+            // Grow downwards by whole words
+            long[] old = bits.toLongArray();
+            long[] words = new long[(int) ((base - wordStart) / 64) + old.length];
+            System.arraycopy(old, 0, words, words.length - old.length, old.length);
+            bits = BitSet.valueOf(words);
+            base = wordStart;
+        }
+        bits.set((int) (day - base));
+    }
+
+    /**
+     * Set day and return the current streak, given streak as the current streak
+     * before the call. Appending in order needs no scan; an out-of-order day
+     * falls back to currentStreak.
+     */
+    public int add(long day, int frequency, int streak) {
+        long last = last();
+        set(day);
+        if (last == NEVER || day > last + Math.max(1, frequency)) return 1;
+        if (day > last) return streak + 1;
+        if (day == last) return Math.max(streak, 1);
+        return currentStreak(last(), frequency);
+    }
+
+    /** Last completed day, or NEVER. */
+    public long last() {
+        return bits.isEmpty() ? NEVER : base + bits.length() - 1;
+    }
+
+    /** Length of the streak ending at the last completion, or 0 if it was broken before asOf. */
+    public int currentStreak(long asOf, int frequency) {
+        if (bits.isEmpty()) return 0;
+        int gap = Math.max(1, frequency);
+        int i = bits.length() - 1;
+        if (asOf - (base + i) > gap) return 0;
+        if (gap == 1) return i - bits.previousClearBit(i);
+        int n = 1;
+        for (int j = bits.previousSetBit(i - 1); j >= 0 && i - j <= gap; j = bits.previousSetBit(j - 1)) {
+            n++;
+            i = j;
+        }
+        return n;
+    }
+
+    /** The longest streak in the whole history. */
+    public int longestStreak(int frequency) {
+        int gap = Math.max(1, frequency), best = 0;
+        if (gap == 1) {
+            for (int i = bits.nextSetBit(0); i >= 0; ) {
+                int end = bits.nextClearBit(i);
+                best = Math.max(best, end - i);
+                i = bits.nextSetBit(end);
+            }
+            return best;
+        }
+        int run = 0, prev = -1;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            run = prev >= 0 && i - prev <= gap ? run + 1 : 1;
+            best = Math.max(best, run);
+            prev = i;
+        }
+        return best;
+    }
+
+    /** Number of completed days in [from, to]. */
+    public int countBetween(long from, long to) {
+        if (bits.isEmpty()) return 0;
+        long lo = Math.max(from - base, 0), hi = Math.min(to - base + 1, bits.length());
+        return lo >= hi ? 0 : bits.get((int) lo, (int) hi).cardinality();
+    }
+
+    /** Completed days among the m days ending at today. */
+    public int completedOfLast(int m, long today) {
+        return countBetween(today - m + 1, today);
+    }
+
+    // -------------------- storage --------------------------------------------
+
+    /** base followed by the bitset words, or null when empty. */
+    public byte[] toBytes() {
+        if (bits.isEmpty()) return null;
+        long[] words = bits.toLongArray();
+        ByteBuffer buf = ByteBuffer.allocate(8 * (words.length + 1));
+        buf.putLong(base);
+        for (long w : words) buf.putLong(w);
+        return buf.array();
+    }
+
+    public static CompletionHistory fromBytes(byte[] bytes) {
+        CompletionHistory h = new CompletionHistory();
+        if (bytes == null || bytes.length < 8) return h;
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        h.base = buf.getLong();
+        long[] words = new long[buf.remaining() / 8];
+        for (int i = 0; i < words.length; i++) words[i] = buf.getLong();
+        h.bits = BitSet.valueOf(words);
+        return h;
+    }
+}
@@ -0,0 +1,377 @@
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection manager for the xLog SQLite file.
+ * The database runs in WAL mode with one dedicated writer connection and a small
+ * pool of read-only connections, so readers never wait behind a write.
+ *
+ * Only the writer thread touches the writer connection. Writes are queued to it,
+ * and it commits whatever has queued up (plus, when several callers are busy,
+ * whatever arrives within GROUP_WINDOW_MS) as one transaction, each item in its
+ * own savepoint so a failing item rolls back alone.
+ */
+public class Database implements AutoCloseable {
+
+    /** Work that produces a value from a borrowed connection. */
+    public interface SqlWork<T> {
+        T run(Connection c) throws SQLException;
+    }
+
+    /** Work with no result. */
+    public interface SqlAction {
+        void run(Connection c) throws SQLException;
+    }
+
+    // How long a connection waits on a lock held by another process before SQLITE_BUSY
+    private static final int BUSY_TIMEOUT_MS = 5000;
+
+    // How long the writer waits for more work to join a batch, when there is contention
+    private static final long GROUP_WINDOW_MS = 2;
+    // Most items committed in one transaction
+    private static final int MAX_BATCH = 256;
+
+    private final Connection writer;
+    private final Thread writerThread;
+    private final BlockingQueue<Pending<?>> pending = new LinkedBlockingQueue<>();
+    private volatile boolean closed;
+    private final BlockingQueue<Connection> readers;
+    private final List<Connection> all = new ArrayList<>();
+    // Most distinct statements kept compiled per connection
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    // Statement registry, one cache per connection. A connection is only ever used
+    // by one thread at a time (the writer thread, readers checked out of the
+    // pool), so the caches need no locking of their own. Filled in the constructor
+    // and never modified afterwards.
+    private final Map<Connection, StatementCache> statements = new IdentityHashMap<>();
+
+    // Callbacks registered by the current write transaction; writer thread only
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private boolean inTransaction;
+
+    /** One queued write and the future its caller holds. */
+    private static final class Pending<T> {
+        final SqlWork<T> work;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        Throwable error;
+
+        Pending(SqlWork<T> work) { this.work = work; }
+
+        void run(Connection c) throws SQLException { result = work.run(c); }
+
+        void complete() {
+            if (error != null) future.completeExceptionally(error);
+            else future.complete(result);
+        }
+    }
+
+    // Queued by close(); the writer finishes what is ahead of it and stops
+    private static final Pending<Void> STOP = new Pending<>(c -> null);
+
+    private Database(String url, int readerCount) throws SQLException {
+        writer = DriverManager.getConnection(url);
+        all.add(writer);
+        ensureMathFunctions(writer);
+        statements.put(writer, new StatementCache(writer, STATEMENT_CACHE_SIZE));
+        try (Statement st = writer.createStatement()) {
+            st.execute("PRAGMA journal_mode = WAL;");
+            st.execute("PRAGMA synchronous = NORMAL;");
+            st.execute("PRAGMA foreign_keys = ON;");
+            st.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS + ";");
+        }
+        readers = new ArrayBlockingQueue<>(readerCount);
+        for (int i = 0; i < readerCount; i++) {
+            Connection r = DriverManager.getConnection(url);
+            all.add(r);
+            ensureMathFunctions(r);
+            statements.put(r, new StatementCache(r, STATEMENT_CACHE_SIZE));
+            try (Statement st = r.createStatement()) {
+                st.execute("PRAGMA query_only = ON;");
+                st.execute("PRAGMA foreign_keys = ON;");
+                st.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS + ";");
+            }
+            readers.add(r);
+        }
+        writerThread = new Thread(this::writerLoop, "xlog-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * The profile XP triggers (Migrations) call ln and exp, which SQLite only has
+     * when it was built with its math functions. Where c lacks them, register
+     * Java versions with the same NULL-for-invalid-input behaviour.
+     */
+    private static void ensureMathFunctions(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.executeQuery("SELECT ln(1), exp(0)").close();
+            return;
+        } catch (SQLException e) {
+            // built without math functions; fall through
+        }
+        registerMathFunctions(c);
+    }
+
+    static void registerMathFunctions(Connection c) throws SQLException {
+        org.sqlite.Function.create(c, "ln", new org.sqlite.Function() {
+            @Override
+            protected void xFunc() throws SQLException {
+                double x = value_double(0);
+                if (x > 0) result(Math.log(x));
+                else result();
+            }
+        }, 1, org.sqlite.Function.FLAG_DETERMINISTIC);
+        org.sqlite.Function.create(c, "exp", new org.sqlite.Function() {
+            @Override
+            protected void xFunc() throws SQLException {
+                result(Math.exp(value_double(0)));
+            }
+        }, 1, org.sqlite.Function.FLAG_DETERMINISTIC);
+    }
+
+    /**
+     * Open the database file with the given number of pooled read-only connections.
+     */
+    public static Database open(Path dbPath, int readerCount) throws SQLException {
+        return new Database("jdbc:sqlite:" + dbPath.toString(), Math.max(1, readerCount));
+    }
+
+    /**
+     * Run a read against a pooled read-only connection. Work already running
+     * inside {@link #write} reads through the writer so it sees its own changes.
+     */
+    public <T> T read(SqlWork<T> work) throws SQLException {
+        if (Thread.currentThread() == writerThread) return work.run(writer);
+        Connection c;
+        try {
+            c = readers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection", e);
+        }
+        try {
+            return work.run(c);
+        } finally {
+            readers.add(c);
+        }
+    }
+
+    public void runRead(SqlAction action) throws SQLException {
+        read(c -> { action.run(c); return null; });
+    }
+
+    /**
+     * Queue a write for the writer thread. The future completes once the
+     * transaction holding it has committed, or fails with what the work threw
+     * (its changes rolled back, the rest of its batch unaffected). Dependent
+     * stages attached with the non-async methods run on the writer thread, so
+     * keep them short or hand off.
+     */
+    public <T> CompletableFuture<T> submit(SqlWork<T> work) {
+        Pending<T> p = new Pending<>(work);
+        if (closed) {
+            p.future.completeExceptionally(new SQLException("Database is closed"));
+        } else {
+            pending.add(p);
+        }
+        return p.future;
+    }
+
+    public CompletableFuture<Void> submitAction(SqlAction action) {
+        return submit(c -> { action.run(c); return null; });
+    }
+
+    /**
+     * Run a write in a transaction on the writer thread and wait for it to commit.
+     * Concurrent callers queue there instead of failing with SQLITE_BUSY. Nested
+     * calls (from work already on the writer thread) join the outer transaction.
+     */
+    public <T> T write(SqlWork<T> work) throws SQLException {
+        if (Thread.currentThread() == writerThread) {
+            if (inTransaction) return work.run(writer);
+            // From an after-commit callback or a completion stage: waiting on the queue would deadlock
+            Pending<T> p = new Pending<>(work);
+            commitBatch(List.of(p));
+            if (p.error != null) throw rethrow(p.error);
+            return p.result;
+        }
+        try {
+            return submit(work).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a write to commit", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private static SQLException rethrow(Throwable cause) {
+        if (cause instanceof SQLException) return (SQLException) cause;
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        return new SQLException(cause);
+    }
+
+    public void runWrite(SqlAction action) throws SQLException {
+        write(c -> { action.run(c); return null; });
+    }
+
+    /**
+     * Run r once the current write transaction commits, or drop it if the
+     * work that registered it rolls back; outside a transaction, run it now.
+     * Callbacks run on the writer thread in registration order, before any
+     * future of the batch completes, so they see commits in order.
+     */
+    public void afterCommit(Runnable r) {
+        if (Thread.currentThread() != writerThread || !inTransaction) { r.run(); return; }
+        afterCommit.add(r);
+    }
+
+    private void writerLoop() {
+        List<Pending<?>> batch = new ArrayList<>();
+        boolean contended = false;
+        boolean stop = false;
+        while (!stop) {
+            try {
+                batch.add(pending.take());
+                pending.drainTo(batch, MAX_BATCH - 1);
+                // A lone caller commits at once; with others writing too, linger for stragglers
+                if (contended || batch.size() > 1) {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GROUP_WINDOW_MS);
+                    while (batch.size() < MAX_BATCH && !batch.contains(STOP)) {
+                        Pending<?> p = pending.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (p == null) break;
+                        batch.add(p);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Nothing should interrupt this thread; if something does, stop rather than spin
+                stop = true;
+            }
+            int stopAt = batch.indexOf(STOP);
+            if (stopAt >= 0) {
+                // Anything queued behind STOP was submitted during close(); refuse it
+                for (int i = stopAt + 1; i < batch.size(); i++) {
+                    batch.get(i).error = new SQLException("Database is closed");
+                    batch.get(i).complete();
+                }
+                batch.subList(stopAt, batch.size()).clear();
+                stop = true;
+            }
+            contended = batch.size() > 1;
+            if (!batch.isEmpty()) commitBatch(batch);
+            batch.clear();
+        }
+        closed = true;
+        for (Pending<?> p; (p = pending.poll()) != null; ) {
+            p.error = new SQLException("Database is closed");
+            p.complete();
+        }
+    }
+
+    private void commitBatch(List<Pending<?>> batch) {
+        boolean savepoints = batch.size() > 1;
+        try {
+            writer.setAutoCommit(false);
+            inTransaction = true;
+            try {
+                for (Pending<?> p : batch) {
+                    int mark = afterCommit.size();
+                    Savepoint sp = savepoints ? writer.setSavepoint() : null;
+                    try {
+                        p.run(writer);
+                        if (sp != null) writer.releaseSavepoint(sp);
+                    } catch (Throwable e) {
+                        p.error = e;
+                        afterCommit.subList(mark, afterCommit.size()).clear();
+                        if (sp != null) writer.rollback(sp);
+                        else writer.rollback();
+                    }
+                }
+                writer.commit();
+            } catch (SQLException | RuntimeException e) {
+                afterCommit.clear();
+                writer.rollback();
+                for (Pending<?> p : batch) if (p.error == null) p.error = e;
+            } finally {
+                inTransaction = false;
+                writer.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            for (Pending<?> p : batch) if (p.error == null) p.error = e;
+        }
+        runAfterCommit();
+        for (Pending<?> p : batch) p.complete();
+    }
+
+    private void runAfterCommit() {
+        // Copied first: a callback may itself write, which commits and runs its own callbacks
+        Runnable[] callbacks = afterCommit.toArray(new Runnable[0]);
+        afterCommit.clear();
+        for (Runnable r : callbacks) {
+            try {
+                r.run();
+            } catch (RuntimeException e) {
+                System.err.println("After-commit callback failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * Return a compiled statement for sql on c, preparing it on first use.
+     * The statement belongs to the cache: callers set parameters and close
+     * their ResultSets, but never close the statement itself.
+     */
+    public PreparedStatement prepare(Connection c, String sql) throws SQLException {
+        StatementCache cache = statements.get(c);
+        if (cache == null) throw new IllegalArgumentException("Connection is not owned by this Database");
+        return cache.get(sql);
+    }
+
+    /**
+     * Statement cache counters summed over all connections.
+     */
+    public String statementStats() {
+        long hits = 0, misses = 0, evictions = 0;
+        for (StatementCache cache : statements.values()) {
+            hits += cache.hits.get();
+            misses += cache.misses.get();
+            evictions += cache.evictions.get();
+        }
+        long total = hits + misses;
+        double rate = total == 0 ? 0 : 100.0 * hits / total;
+        return String.format("%d hits, %d misses (%.1f%% hit rate), %d evictions", hits, misses, rate, evictions);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        pending.add(STOP);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (StatementCache cache : statements.values()) cache.close();
+        for (Connection c : all) {
+            try { c.close(); } catch (SQLException ignore) {}
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the day-change work (daily log, penalties) when the local date changes
+ * while the app is open. A one-shot timer fires at the next local midnight, and
+ * a once-a-minute check catches what the timer cannot: the wall clock being set,
+ * the default time zone changing, or the machine waking from sleep. Either way,
+ * the work runs on the scheduler's own thread, once per new day.
+ */
+public class DayRolloverScheduler implements AutoCloseable {
+
+    /** The work for a new day; day is the new local epoch day. */
+    public interface Rollover {
+        void run(long day) throws Exception;
+    }
+
+    static final long CHECK_SECONDS = 60;
+    // Timer drift (against the wall clock) beyond which midnight is rescheduled
+    private static final long MAX_DRIFT_MS = 2000;
+
+    private final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "xlog-rollover");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Rollover work;
+
+    // only touched on the scheduler thread
+    private long lastDay;
+    private ZoneId zone;
+    private Instant nextMidnight;
+    private ScheduledFuture<?> midnight;
+
+    /** today is the day the caller has already rolled over to. */
+    public DayRolloverScheduler(long today, Rollover work) {
+        this.lastDay = today;
+        this.work = work;
+    }
+
+    public void start() {
+        exec.execute(() -> {
+            scheduleMidnight();
+            check();
+        });
+        exec.scheduleWithFixedDelay(this::check, CHECK_SECONDS, CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void check() {
+        ZoneId z = ZoneId.systemDefault();
+        long today = LocalDate.now(z).toEpochDay();
+        if (today != lastDay) {
+            // A clock set backwards only moves the marker; the work is idempotent per day anyway
+            if (today > lastDay) {
+                try {
+                    work.run(today);
+                } catch (Exception e) {
+                    System.err.println("Day rollover failed: " + e);
+                }
+            }
+            lastDay = today;
+            scheduleMidnight();
+            return;
+        }
+        long wallMs = Duration.between(Instant.now(), nextMidnight).toMillis();
+        if (!z.equals(zone) || Math.abs(midnight.getDelay(TimeUnit.MILLISECONDS) - wallMs) > MAX_DRIFT_MS) {
+            scheduleMidnight();
+        }
+    }
+
+    private void scheduleMidnight() {
+        zone = ZoneId.systemDefault();
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        nextMidnight = now.toLocalDate().plusDays(1).atStartOfDay(zone).toInstant();
+        if (midnight != null) midnight.cancel(false);
+        // A little past midnight so LocalDate.now() has already moved on
+        long delay = Duration.between(now.toInstant(), nextMidnight).toMillis() + 100;
+        midnight = exec.schedule(this::check, delay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        exec.shutdownNow();
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.Arrays;
+
+/**
+ * Task ids ordered by due day in a binary min-heap with a position index, so
+ * the earliest due task is O(1) to read and put/remove are O(log n) whatever
+ * the number of tasks. Ties go to the lower id. Not thread-safe; DueSchedule
+ * guards it.
+ */
+public final class DueQueue {
+
+    private int size;
+    private int[] ids = new int[16];
+    private long[] dues = new long[16];
+    private int[] pos = new int[16];     // task id -> heap index + 1, 0 if absent
+
+    public int size() { return size; }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < pos.length && pos[id] != 0;
+    }
+
+    /** Earliest due day, or Long.MAX_VALUE when empty. */
+    public long peekDue() {
+        return size == 0 ? Long.MAX_VALUE : dues[0];
+    }
+
+    /** Id of the earliest due task, or -1 when empty. */
+    public int peekId() {
+        return size == 0 ? -1 : ids[0];
+    }
+
+    /** Insert id, or move it if it is already queued. */
+    public void put(int id, long due) {
+        if (id >= pos.length) pos = Arrays.copyOf(pos, Math.max(id + 1, pos.length * 2));
+        int i = pos[id] - 1;
+        if (i < 0) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                dues = Arrays.copyOf(dues, size * 2);
+            }
+            i = size++;
+            ids[i] = id;
+            dues[i] = due;
+            pos[id] = i + 1;
+            siftUp(i);
+        } else {
+            long old = dues[i];
+            dues[i] = due;
+            if (due < old) siftUp(i);
+            else siftDown(i);
+        }
+    }
+
+    public boolean remove(int id) {
+        if (!contains(id)) return false;
+        int i = pos[id] - 1;
+        pos[id] = 0;
+        if (--size == i) return true;
+        ids[i] = ids[size];
+        dues[i] = dues[size];
+        pos[ids[i]] = i + 1;
+        siftDown(i);
+        siftUp(i);
+        return true;
+    }
+
+    /**
+     * Ids due on or before day, earliest first, appended to out from index 0;
+     * returns how many (out may be too small, in which case it is filled). Visits
+     * only the matching part of the heap, with a small heap of its frontier.
+     */
+    public int dueThrough(long day, int[] out) {
+        if (size == 0 || dues[0] > day) return 0;
+        int[] frontier = new int[16];
+        int fn = 0, n = 0;
+        frontier[fn++] = 0;
+        while (fn > 0) {
+            // pop the frontier node with the smallest key
+            int best = 0;
+            for (int k = 1; k < fn; k++) {
+                if (less(frontier[k], frontier[best])) best = k;
+            }
+            int i = frontier[best];
+            frontier[best] = frontier[--fn];
+            if (n < out.length) out[n] = ids[i];
+            n++;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                if (dues[child] > day) continue;
+                if (fn == frontier.length) frontier = Arrays.copyOf(frontier, fn * 2);
+                frontier[fn++] = child;
+            }
+        }
+        return n;
+    }
+
+    private boolean less(int a, int b) {
+        return dues[a] < dues[b] || (dues[a] == dues[b] && ids[a] < ids[b]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!less(i, parent)) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int l = 2 * i + 1, r = l + 1, m = i;
+            if (l < size && less(l, m)) m = l;
+            if (r < size && less(r, m)) m = r;
+            if (m == i) return;
+            swap(i, m);
+            i = m;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        long d = dues[a];
+        dues[a] = dues[b];
+        dues[b] = d;
+        pos[ids[a]] = a + 1;
+        pos[ids[b]] = b + 1;
+    }
+}
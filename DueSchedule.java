@@ -0,0 +1,125 @@
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * In-memory mirror of tasks.next_due for active tasks: a DueQueue of the ones
+ * done at least once, plus the never-done ones (due from day 0, never overdue).
+ * reload() reads it at startup; SqliteTaskRepository calls refresh() for every
+ * task it changes and the change lands when the transaction commits, the same
+ * way ProfileSnapshotService follows XP. Code that edits tasks with its own SQL
+ * calls refresh() or reload() itself.
+ *
+ * Both only read, so they go through db.read and never queue on the writer.
+ * Inside a write transaction that read uses the writer's connection, which sees
+ * the uncommitted change, and the result waits for afterCommit so schedules
+ * land in commit order and a rollback leaves nothing behind. Outside one they
+ * read from the pool and apply at once; reload() is meant for that case only
+ * while no task write is in flight (startup), since a concurrent refresh could
+ * otherwise be overwritten by its older snapshot.
+ *
+ * The overdue sweep asks earliestDue() before it queries, and the home window
+ * reads its due counts from here.
+ */
+public class DueSchedule {
+
+    private final Database db;
+    private DueQueue queue = new DueQueue();
+    private int[] undone = new int[0];         // sorted ids of active, never-done tasks
+
+    public DueSchedule(Database db) {
+        this.db = db;
+    }
+
+    /** Replace the whole schedule with what the database holds. */
+    public void reload() throws SQLException {
+        db.runRead(c -> {
+            DueQueue q = new DueQueue();
+            int[] ids = new int[16];
+            int n = 0;
+            try (ResultSet rs = db.prepare(c,
+                    "SELECT id, next_due FROM tasks WHERE active = 1 AND next_due IS NOT NULL").executeQuery()) {
+                while (rs.next()) {
+                    long due = rs.getLong(2);
+                    if (due > 0) q.put(rs.getInt(1), due);
+                    else {
+                        if (n == ids.length) ids = Arrays.copyOf(ids, n * 2);
+                        ids[n++] = rs.getInt(1);
+                    }
+                }
+            }
+            int[] never = Arrays.copyOf(ids, n);
+            Arrays.sort(never);
+            db.afterCommit(() -> install(q, never));
+        });
+    }
+
+    /** Re-read task id; within a write the schedule changes when that transaction commits. */
+    public void refresh(int id) throws SQLException {
+        db.runRead(c -> {
+            PreparedStatement ps = db.prepare(c, "SELECT active, next_due FROM tasks WHERE id = ?");
+            ps.setInt(1, id);
+            long due;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getInt(1) == 1) {
+                    due = rs.getLong(2);
+                    if (rs.wasNull()) due = Recurrence.NOT_DUE;
+                } else {
+                    due = Recurrence.NOT_DUE;
+                }
+            }
+            long d = due;
+            db.afterCommit(() -> apply(id, d));
+        });
+    }
+
+    /** Earliest next_due among tasks done at least once, Long.MAX_VALUE if none. */
+    public synchronized long earliestDue() {
+        return queue.peekDue();
+    }
+
+    /** Active tasks due on or before day (never-done ones first), in due order. */
+    public synchronized int[] dueOn(long day) {
+        int n = queue.dueThrough(day, new int[0]);
+        int[] out = Arrays.copyOf(undone, undone.length + n);
+        int[] queued = new int[n];
+        queue.dueThrough(day, queued);
+        System.arraycopy(queued, 0, out, undone.length, n);
+        return out;
+    }
+
+    /** How many tasks due on or before day are overdue, i.e. were due before it. */
+    public synchronized int overdueCount(long day) {
+        return queue.dueThrough(day - 1, new int[0]);
+    }
+
+    private synchronized void install(DueQueue q, int[] never) {
+        queue = q;
+        undone = never;
+    }
+
+    private synchronized void apply(int id, long due) {
+        int i = Arrays.binarySearch(undone, id);
+        if (due == 0) {
+            queue.remove(id);
+            if (i < 0) {
+                int at = -i - 1;
+                int[] u = new int[undone.length + 1];
+                System.arraycopy(undone, 0, u, 0, at);
+                u[at] = id;
+                System.arraycopy(undone, at, u, at + 1, undone.length - at);
+                undone = u;
+            }
+            return;
+        }
+        if (i >= 0) {
+            int[] u = new int[undone.length - 1];
+            System.arraycopy(undone, 0, u, 0, i);
+            System.arraycopy(undone, i + 1, u, i, u.length - i);
+            undone = u;
+        }
+        if (due == Recurrence.NOT_DUE) queue.remove(id);
+        else queue.put(id, due);
+    }
+}
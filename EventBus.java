@@ -0,0 +1,90 @@
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe for the events in XpEvents. Every subscription has
+ * its own bounded queue and daemon thread, so a slow subscriber never holds up the
+ * publisher or the other subscribers. publish() does not block: when a queue is
+ * full the event is dropped for that subscriber and counted in dropped(), which a
+ * subscriber can check to fall back to a full reload.
+ */
+public class EventBus implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** One subscriber: a handler for events of one type, fed from its own queue. */
+    public final class Subscription {
+        private final Class<?> type;
+        private final Consumer<Object> handler;
+        private final BlockingQueue<Object> queue;
+        private final AtomicLong dropped = new AtomicLong();
+        private final Thread worker;
+        private volatile boolean open = true;
+
+        private Subscription(Class<?> type, int capacity, Consumer<Object> handler) {
+            this.type = type;
+            this.handler = handler;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.worker = new Thread(this::drain, "xlog-events-" + type.getSimpleName());
+            this.worker.setDaemon(true);
+        }
+
+        /** Events dropped because the queue was full. */
+        public long dropped() { return dropped.get(); }
+
+        public void cancel() {
+            open = false;
+            subscriptions.remove(this);
+            worker.interrupt();
+        }
+
+        private void offer(Object event) {
+            if (!queue.offer(event)) dropped.incrementAndGet();
+        }
+
+        private void drain() {
+            while (open) {
+                Object event;
+                try {
+                    event = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    handler.accept(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Event handler failed on " + event + ": " + e);
+                }
+            }
+        }
+    }
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public <E> Subscription subscribe(Class<E> type, Consumer<? super E> handler) {
+        return subscribe(type, DEFAULT_CAPACITY, handler);
+    }
+
+    /** Deliver every published instance of type (subclasses included) to handler, in publish order. */
+    public <E> Subscription subscribe(Class<E> type, int capacity, Consumer<? super E> handler) {
+        Subscription s = new Subscription(type, capacity, e -> handler.accept(type.cast(e)));
+        subscriptions.add(s);
+        s.worker.start();
+        return s;
+    }
+
+    public void publish(Object event) {
+        for (Subscription s : subscriptions) {
+            if (s.type.isInstance(event)) s.offer(event);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Subscription s : subscriptions) s.cancel();
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javafx.collections.ObservableList;
+
+/**
+ * Keyed edits of the home list, whose items are TaskViews rows plus the marker
+ * strings of the GUI (the empty-list message and the completed header). Kept
+ * out of Main.GuiApp so it works on any ObservableList, without a window.
+ */
+final class HomeListDiff {
+
+    private HomeListDiff() {}
+
+    /**
+     * Turn items into target: rows that are unchanged stay (their cells are not
+     * rebound), changed rows are replaced in place, and only the rest are removed
+     * or inserted. With nothing in common the list is replaced in one change.
+     */
+    static void apply(ObservableList<Object> items, List<Object> target) {
+        Set<Object> wanted = new HashSet<>();
+        for (Object o : target) wanted.add(key(o));
+        int common = 0;
+        for (Object o : items) if (wanted.contains(key(o))) common++;
+        if (common == 0) {
+            // nothing to keep (first load, new day): one change instead of many
+            items.setAll(target);
+            return;
+        }
+        Set<Object> placed = new HashSet<>();
+        int i = 0;
+        for (Object o : target) {
+            Object k = key(o);
+            // drop rows that are gone, and stale copies of rows already placed further up
+            while (i < items.size()) {
+                Object cur = key(items.get(i));
+                if (wanted.contains(cur) && !placed.contains(cur)) break;
+                items.remove(i);
+            }
+            if (i < items.size() && key(items.get(i)).equals(k)) {
+                if (!items.get(i).equals(o)) items.set(i, o);
+            } else {
+                items.add(i, o);
+            }
+            placed.add(k);
+            i++;
+        }
+        if (i < items.size()) items.remove(i, items.size());
+    }
+
+    /** Identity of a list item across reloads: the task id and which section it is in. */
+    static Object key(Object item) {
+        if (item instanceof TaskViews.DueRow) return ((TaskViews.DueRow) item).id;
+        if (item instanceof TaskViews.DoneRow) return -1L - ((TaskViews.DoneRow) item).id;
+        return item; // a marker string, or null
+    }
+}
@@ -0,0 +1,155 @@
+import java.util.Arrays;
+
+/**
+ * ProfileRepository held in primitive arrays, for benchmarks and simulations
+ * that should not touch disk. Ids are 1-based like SQLite rowids. Not thread-safe.
+ */
+public class InMemoryProfileRepository implements ProfileRepository {
+
+    // elements, indexed by id - 1
+    private int elementCount;
+    private int[] elementDomain = new int[16];
+    private long[] elementXp = new long[16];
+    private boolean[] elementFocus = new boolean[16];
+
+    // domains, indexed by id - 1
+    private int domainCount;
+    private long[] domainXp = new long[4];
+    private double logSum;                  // see ProfileXp
+
+    // task_completions
+    private int completionCount;
+    private int[] completionTask = new int[64];
+    private long[] completionDay = new long[64];
+    private long[] completionAt = new long[64];
+    private int[] completionMajor = new int[64];
+    private int[] completionMinor = new int[64];
+
+    // xp_log; xp_log_domain rows for entry i are logDomains[logStart[i] .. logStart[i + 1])
+    private int logCount;
+    private long[] logDay = new long[64];
+    private double[] logProfile = new double[64];
+    private int[] logStart = new int[65];
+    private int logDomainCount;
+    private int[] logDomainIds = new int[256];
+    private double[] logDomains = new double[256];
+
+    // -------------------- setup --------------------------------------------
+
+    public int addDomain() {
+        if (domainCount == domainXp.length) domainXp = Arrays.copyOf(domainXp, domainCount * 2);
+        logSum += ProfileXp.term(0);
+        return ++domainCount;
+    }
+
+    public int addElement(int domainId, boolean focus) {
+        if (elementCount == elementDomain.length) {
+            int cap = elementCount * 2;
+            elementDomain = Arrays.copyOf(elementDomain, cap);
+            elementXp = Arrays.copyOf(elementXp, cap);
+            elementFocus = Arrays.copyOf(elementFocus, cap);
+        }
+        elementDomain[elementCount] = domainId;
+        elementFocus[elementCount] = focus;
+        return ++elementCount;
+    }
+
+    public boolean isFocus(int elementId) {
+        return elementId >= 1 && elementId <= elementCount && elementFocus[elementId - 1];
+    }
+
+    /** Domain id of an element, 0 if there is no such element. */
+    public int domainOf(int elementId) {
+        return (elementId >= 1 && elementId <= elementCount) ? elementDomain[elementId - 1] : 0;
+    }
+
+    public long elementXp(int elementId) {
+        return elementXp[elementId - 1];
+    }
+
+    public int completionCount() {
+        return completionCount;
+    }
+
+    public int logCount() {
+        return logCount;
+    }
+
+    // -------------------- ProfileRepository --------------------------------------------
+
+    @Override
+    public void addElementXp(int elementId, int delta) {
+        if (elementId < 1 || elementId > elementCount) return;
+        elementXp[elementId - 1] += delta;
+        int d = elementDomain[elementId - 1] - 1;
+        long old = domainXp[d];
+        domainXp[d] += delta;
+        logSum = ProfileXp.update(logSum, old, domainXp[d]);
+    }
+
+    @Override
+    public void addElementXp(int[] elementIds, int[] deltas, int n) {
+        for (int i = 0; i < n; i++) addElementXp(elementIds[i], deltas[i]);
+    }
+
+    @Override
+    public int domainTotals(int[] ids, double[] xps) {
+        int n = Math.min(ids.length, domainCount);
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+            xps[i] = domainXp[i];
+        }
+        return domainCount;
+    }
+
+    @Override
+    public double profileXp() {
+        return ProfileXp.fromLogSum(logSum, domainCount);
+    }
+
+    @Override
+    public void recordCompletion(int taskId, long day, long doneAtMillis, int majorXp, int minorXp) {
+        if (completionCount == completionTask.length) {
+            int cap = completionCount * 2;
+            completionTask = Arrays.copyOf(completionTask, cap);
+            completionDay = Arrays.copyOf(completionDay, cap);
+            completionAt = Arrays.copyOf(completionAt, cap);
+            completionMajor = Arrays.copyOf(completionMajor, cap);
+            completionMinor = Arrays.copyOf(completionMinor, cap);
+        }
+        completionTask[completionCount] = taskId;
+        completionDay[completionCount] = day;
+        completionAt[completionCount] = doneAtMillis;
+        completionMajor[completionCount] = majorXp;
+        completionMinor[completionCount] = minorXp;
+        completionCount++;
+    }
+
+    @Override
+    public long lastLoggedDay() {
+        long last = TaskRepository.NEVER;
+        for (int i = 0; i < logCount; i++) last = Math.max(last, logDay[i]);
+        return last;
+    }
+
+    @Override
+    public void appendDailyLog(long day, double profileXp, int[] domainIds, double[] domainXps, int n) {
+        if (logCount == logDay.length) {
+            int cap = logCount * 2;
+            logDay = Arrays.copyOf(logDay, cap);
+            logProfile = Arrays.copyOf(logProfile, cap);
+            logStart = Arrays.copyOf(logStart, cap + 1);
+        }
+        if (logDomainCount + n > logDomains.length) {
+            int cap = Math.max(logDomainCount + n, logDomains.length * 2);
+            logDomainIds = Arrays.copyOf(logDomainIds, cap);
+            logDomains = Arrays.copyOf(logDomains, cap);
+        }
+        logDay[logCount] = day;
+        logProfile[logCount] = profileXp;
+        System.arraycopy(domainIds, 0, logDomainIds, logDomainCount, n);
+        System.arraycopy(domainXps, 0, logDomains, logDomainCount, n);
+        logDomainCount += n;
+        logStart[++logCount] = logDomainCount;
+    }
+}
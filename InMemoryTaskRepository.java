@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * TaskRepository held in primitive arrays (one array per column), for benchmarks
+ * and simulations. Focus flags and domains come from the paired InMemoryProfileRepository.
+ * Ids are 1-based; deleted rows keep their slot. Not thread-safe.
+ */
+public class InMemoryTaskRepository implements TaskRepository {
+
+    private final InMemoryProfileRepository profile;
+
+    private int count;
+    private String[] name = new String[16];
+    private String[] type = new String[16];
+    private int[] frequency = new int[16];
+    private int[] majorElem = new int[16];
+    private int[] minorElem = new int[16];
+    private int[] streak = new int[16];
+    private CompletionHistory[] history = new CompletionHistory[16];
+    private Recurrence[] recurrence = new Recurrence[16];
+    private long[] lastDone = new long[16];
+    private long[] lastPenalty = new long[16];
+    private boolean[] active = new boolean[16];
+    private boolean[] deleted = new boolean[16];
+
+    public InMemoryTaskRepository(InMemoryProfileRepository profile) {
+        this.profile = profile;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int create(String taskName, String taskType, int freq, int major, int minor) {
+        if (findIdByName(taskName) > 0) throw new IllegalArgumentException("Duplicate task name: " + taskName);
+        if (count == name.length) grow(count * 2);
+        name[count] = taskName;
+        type[count] = taskType;
+        frequency[count] = freq;
+        majorElem[count] = major;
+        minorElem[count] = minor;
+        streak[count] = 0;
+        history[count] = new CompletionHistory();
+        recurrence[count] = Recurrence.every(freq);
+        lastDone[count] = NEVER;
+        lastPenalty[count] = NEVER;
+        active[count] = true;
+        deleted[count] = false;
+        return ++count;
+    }
+
+    @Override
+    public Task find(int id) {
+        int i = id - 1;
+        return (i < 0 || i >= count || deleted[i]) ? null : toTask(i);
+    }
+
+    @Override
+    public int findIdByName(String taskName) {
+        for (int i = 0; i < count; i++) {
+            if (!deleted[i] && name[i].equals(taskName)) return i + 1;
+        }
+        return -1;
+    }
+
+    @Override
+    public List<Task> dueOn(long day) {
+        List<Task> out = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (!deleted[i] && active[i] && nextDue(i) <= day) out.add(toTask(i));
+        }
+        return out;
+    }
+
+    @Override
+    public List<Task> overdueOn(long day) {
+        List<Task> out = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (isOverdue(i, day)) out.add(toTask(i));
+        }
+        return out;
+    }
+
+    @Override
+    public void markCompleted(int id, long day) {
+        int i = id - 1;
+        if (i < 0 || i >= count || deleted[i]) return;
+        lastDone[i] = day;
+        streak[i] = history[i].add(day, frequency[i], streak[i]);
+    }
+
+    @Override
+    public void setRecurrence(int id, Recurrence r) {
+        int i = id - 1;
+        if (i < 0 || i >= count || deleted[i]) return;
+        recurrence[i] = r;
+        frequency[i] = r.frequency();
+    }
+
+    @Override
+    public CompletionHistory history(int id) {
+        int i = id - 1;
+        return (i < 0 || i >= count || deleted[i]) ? new CompletionHistory() : history[i];
+    }
+
+    @Override
+    public void markOverduePenalized(long day) {
+        for (int i = 0; i < count; i++) {
+            if (isOverdue(i, day)) {
+                lastPenalty[i] = day;
+                streak[i] = 0;
+            }
+        }
+    }
+
+    @Override
+    public void setActive(int id, boolean isActive) {
+        int i = id - 1;
+        if (i >= 0 && i < count) active[i] = isActive;
+    }
+
+    @Override
+    public void delete(int id) {
+        int i = id - 1;
+        if (i >= 0 && i < count) deleted[i] = true;
+    }
+
+    // -------------------- helpers --------------------------------------------
+
+    /** Mirrors tasks.next_due: 0 if never done, Recurrence.NOT_DUE if done and not recurring. */
+    private long nextDue(int i) {
+        return recurrence[i].nextDue(lastDone[i], history[i]);
+    }
+
+    private boolean isOverdue(int i, long day) {
+        long due = nextDue(i);
+        return !deleted[i] && active[i] && due > 0 && due < day && (lastPenalty[i] == NEVER || lastPenalty[i] < day)
+            && recurrence[i].isScheduledOn(day);
+    }
+
+    private Task toTask(int i) {
+        return new Task(i + 1, name[i], type[i], frequency[i], majorElem[i], minorElem[i],
+                        profile.domainOf(majorElem[i]), streak[i], lastDone[i], nextDue(i), active[i], profile.isFocus(majorElem[i]));
+    }
+
+    private void grow(int cap) {
+        name = Arrays.copyOf(name, cap);
+        type = Arrays.copyOf(type, cap);
+        frequency = Arrays.copyOf(frequency, cap);
+        majorElem = Arrays.copyOf(majorElem, cap);
+        minorElem = Arrays.copyOf(minorElem, cap);
+        streak = Arrays.copyOf(streak, cap);
+        history = Arrays.copyOf(history, cap);
+        recurrence = Arrays.copyOf(recurrence, cap);
+        lastDone = Arrays.copyOf(lastDone, cap);
+        lastPenalty = Arrays.copyOf(lastPenalty, cap);
+        active = Arrays.copyOf(active, cap);
+        deleted = Arrays.copyOf(deleted, cap);
+    }
+}
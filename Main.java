@@ -2,6 +2,7 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.nio.file.*;
 
 // JavaFX imports for the new Home GUI and Profile GUI
@@ -22,7 +23,15 @@ import javafx.scene.Node;
 
 public class Main {
   // --- DB ----------------------------------------------------------------
-  private static Connection conn = null;
+  private static Database db = null;
+  private static ProgressService progress = null;
+  private static ProfileSnapshotService snapshots = null;
+  private static EventBus events = null;
+  private static XpRuleStore xpRules = null;
+  private static AchievementEngine achievements = null;
+  private static DayRolloverScheduler rollover = null;
+  private static DueSchedule dueSchedule = null;
+  private static final int READ_CONNECTIONS = 3;
   // Constants still needed by other parts of the application
   private static final double XP_MAX = 109500.0;
 
@@ -39,12 +48,6 @@ public class Main {
     "\033[97m","\033[90m","\033[93m","\033[91m",
     "\033[92m","\033[94m","\033[95m","\033[31m","\033[30m"
   };
-  private static final String[] GUI_COLORS = {
-    "#f472b6", // Pink
-    "#34d399", // Green  
-    "#60a5fa", // Blue
-    "#a78bfa"  // Purple
-  };
   private static final int BADGE_H = 11;
   private static final int BADGE_W = BADGE_H * 2;
 
@@ -63,82 +66,48 @@ public class Main {
     return LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE); // yyyy-MM-dd
   }
 
-  private static int getInt(String q) throws SQLException {
-    try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(q)) {
+  private static int getInt(Connection c, String q) throws SQLException {
+    try (ResultSet rs = db.prepare(c, q).executeQuery()) {
       return rs.next() ? rs.getInt(1) : -1;
     }
   }
 
-  private static double getDouble(String q) throws SQLException {
-    try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(q)) {
-      return rs.next() ? rs.getDouble(1) : 0.0;
-    }
-  }
-
-  private static int getDomainIdByName(String name) throws SQLException {
-    try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM domains WHERE name = ?")) {
-      ps.setString(1, name);
-      try (ResultSet rs = ps.executeQuery()) {
-        return rs.next() ? rs.getInt("id") : -1;
-      }
+  private static int getDomainIdByName(Connection c, String name) throws SQLException {
+    PreparedStatement ps = db.prepare(c, "SELECT id FROM domains WHERE name = ?");
+    ps.setString(1, name);
+    try (ResultSet rs = ps.executeQuery()) {
+      return rs.next() ? rs.getInt("id") : -1;
     }
   }
 
-  private static int getElementIdByName(String name) throws SQLException {
-    try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM elements WHERE name = ?")) {
-      ps.setString(1, name);
-      try (ResultSet rs = ps.executeQuery()) {
-        return rs.next() ? rs.getInt("id") : -1;
-      }
+  private static int getElementIdByName(Connection c, String name) throws SQLException {
+    PreparedStatement ps = db.prepare(c, "SELECT id FROM elements WHERE name = ?");
+    ps.setString(1, name);
+    try (ResultSet rs = ps.executeQuery()) {
+      return rs.next() ? rs.getInt("id") : -1;
     }
   }
 
-  private static int getTaskIdByName(String name) throws SQLException {
-    try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM tasks WHERE name = ?")) {
-      ps.setString(1, name);
-      try (ResultSet rs = ps.executeQuery()) {
-        return rs.next() ? rs.getInt("id") : -1;
-      }
+  private static int getTaskIdByName(Connection c, String name) throws SQLException {
+    PreparedStatement ps = db.prepare(c, "SELECT id FROM tasks WHERE name = ?");
+    ps.setString(1, name);
+    try (ResultSet rs = ps.executeQuery()) {
+      return rs.next() ? rs.getInt("id") : -1;
     }
   }
 
-  private static String getTaskLastDone(int tid) throws SQLException {
-    try (PreparedStatement ps = conn.prepareStatement("SELECT last_done FROM tasks WHERE id = ?")) {
-      ps.setInt(1, tid);
-      try (ResultSet rs = ps.executeQuery()) {
-        if (rs.next()) {
-          String s = rs.getString(1);
-          return s == null ? "" : s;
-        }
+  private static String getTaskLastDone(Connection c, int tid) throws SQLException {
+    PreparedStatement ps = db.prepare(c, "SELECT last_done FROM tasks WHERE id = ?");
+    ps.setInt(1, tid);
+    try (ResultSet rs = ps.executeQuery()) {
+      if (rs.next()) {
+        String s = rs.getString(1);
+        return s == null ? "" : s;
       }
     }
     return "";
   }
 
-  private static List<Double> fetchDomainXPs() throws SQLException {
-    List<Double> v = new ArrayList<>(Arrays.asList(0.0,0.0,0.0,0.0));
-    try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM domains ORDER BY id LIMIT 4");
-         ResultSet rs = ps.executeQuery()) {
-      int i = 0;
-      while (rs.next() && i < 4) {
-        int did = rs.getInt(1);
-        double sum = getDouble("SELECT COALESCE(SUM(xp),0) FROM elements WHERE domain_id = " + did);
-        v.set(i++, sum);
-      }
-    }
-    return v;
-  }
-
-  private static void insertXpLog(List<Double> dx, double px) throws SQLException {
-    try (PreparedStatement ps = conn.prepareStatement(
-      "INSERT INTO xp_log(date,profile_xp,domain1_xp,domain2_xp,domain3_xp,domain4_xp) VALUES(?,?,?,?,?,?)")) {
-      ps.setString(1, nowStr());
-      ps.setDouble(2, px);
-      for (int i = 0; i < 4; ++i) ps.setDouble(3 + i, dx.get(i));
-      ps.executeUpdate();
-    }
-  }
-
   /**
    * Helper: apply a CSS file to a Scene if the file exists.
    * This is the only CSS-related change: different scenes will load different CSS files.
@@ -153,68 +122,6 @@ public class Main {
     }
   }
 
-  // -------------------- DB init ------------------------------------------
-  private static void initDB() throws SQLException {
-    try (Statement st = conn.createStatement()) {
-      st.execute("PRAGMA foreign_keys = ON;");
-      st.execute(
-        "CREATE TABLE IF NOT EXISTS user (" +
-        " id INTEGER PRIMARY KEY CHECK(id=1)," +
-        " name TEXT NOT NULL," +
-        " created_at TEXT NOT NULL" +
-        ");"
-      );
-      st.execute(
-        "CREATE TABLE IF NOT EXISTS domains (" +
-        " id INTEGER PRIMARY KEY AUTOINCREMENT," +
-        " name TEXT NOT NULL UNIQUE" +
-        ");"
-      );
-      st.execute(
-        "CREATE TABLE IF NOT EXISTS elements (" +
-        " id INTEGER PRIMARY KEY AUTOINCREMENT," +
-        " domain_id INTEGER NOT NULL REFERENCES domains(id) ON DELETE CASCADE," +
-        " name TEXT NOT NULL," +
-        " is_focus INTEGER NOT NULL DEFAULT 0," +
-        " xp INTEGER NOT NULL DEFAULT 0," +
-        " UNIQUE(domain_id, name)" +
-        ");"
-      );
-      st.execute(
-        "CREATE TABLE IF NOT EXISTS tasks (" +
-        " id INTEGER PRIMARY KEY AUTOINCREMENT," +
-        " name TEXT NOT NULL UNIQUE," +
-        " type TEXT NOT NULL," +
-        " frequency INTEGER NOT NULL," +
-        " major_elem INTEGER NOT NULL REFERENCES elements(id)," +
-        " minor_elem INTEGER NOT NULL REFERENCES elements(id)," +
-        " last_done TEXT," +
-        " streak INTEGER NOT NULL DEFAULT 0," +
-        " active INTEGER NOT NULL DEFAULT 1," +
-        " last_penalty_date TEXT" +
-        ");"
-      );
-      
-      // Add last_penalty_date column to existing tasks table if it doesn't exist
-      try {
-        st.execute("ALTER TABLE tasks ADD COLUMN last_penalty_date TEXT;");
-      } catch (SQLException e) {
-        // Column already exists, ignore
-      }
-      st.execute(
-        "CREATE TABLE IF NOT EXISTS xp_log (" +
-        " id INTEGER PRIMARY KEY AUTOINCREMENT," +
-        " date TEXT NOT NULL UNIQUE," +
-        " profile_xp REAL NOT NULL," +
-        " domain1_xp REAL NOT NULL," +
-        " domain2_xp REAL NOT NULL," +
-        " domain3_xp REAL NOT NULL," +
-        " domain4_xp REAL NOT NULL" +
-        ");"
-      );
-    }
-  }
-
   // -------------------- intro --------------------------------------------
   private static void typePrint(String txt, int delayMs) {
     for (char c : txt.toCharArray()) {
@@ -252,11 +159,12 @@ public class Main {
     System.out.print("Enter your name: ");
     String uname = sc.nextLine();
 
-    try (PreparedStatement ps = conn.prepareStatement("INSERT INTO user(id,name,created_at) VALUES(1,?,?)")) {
+    db.runWrite(c -> {
+      PreparedStatement ps = db.prepare(c, "INSERT INTO user(id,name,created_at) VALUES(1,?,?)");
       ps.setString(1, uname);
       ps.setString(2, nowStr());
       ps.executeUpdate();
-    }
+    });
 
     showIntro(uname);
     clearScreen();
@@ -264,31 +172,35 @@ public class Main {
     for (int d = 0; d < 4; ++d) {
       System.out.print("Domain #" + (d + 1) + " name: ");
       String dn = sc.nextLine();
-      try (PreparedStatement ps = conn.prepareStatement("INSERT INTO domains(name) VALUES(?)")) {
-        ps.setString(1, dn);
-        ps.executeUpdate();
-      }
-      int did = getDomainIdByName(dn);
+      String[] elementNames = new String[4];
       for (int e = 0; e < 4; ++e) {
         System.out.print("  Element #" + (e + 1) + " for '" + dn + "': ");
-        String en = sc.nextLine();
-        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO elements(domain_id,name) VALUES(?,?)")) {
-          ps.setInt(1, did);
-          ps.setString(2, en);
-          ps.executeUpdate();
-        }
+        elementNames[e] = sc.nextLine();
       }
+      db.runWrite(c -> {
+        PreparedStatement dps = db.prepare(c, "INSERT INTO domains(name) VALUES(?)");
+        dps.setString(1, dn);
+        dps.executeUpdate();
+        int did = getDomainIdByName(c, dn);
+        PreparedStatement eps = db.prepare(c, "INSERT INTO elements(domain_id,name) VALUES(?,?)");
+        for (String en : elementNames) {
+          eps.setInt(1, did);
+          eps.setString(2, en);
+          eps.executeUpdate();
+        }
+      });
     }
 
-    int didElem = getElementIdByName("Discipline");
-    if (didElem > 0) {
-      try (PreparedStatement ps = conn.prepareStatement(
-        "INSERT OR IGNORE INTO tasks(name,type,frequency,major_elem,minor_elem) VALUES('daily_login','quick',1,?,?)")) {
+    db.runWrite(c -> {
+      int didElem = getElementIdByName(c, "Discipline");
+      if (didElem > 0) {
+        PreparedStatement ps = db.prepare(c,
+            "INSERT OR IGNORE INTO tasks(name,type,frequency,major_elem,minor_elem) VALUES('daily_login','quick',1,?,?)");
         ps.setInt(1, didElem);
         ps.setInt(2, didElem);
         ps.executeUpdate();
       }
-    }
+    });
   }
 
   // -------------------- task ops ----------------------------------------
@@ -298,146 +210,227 @@ public class Main {
     Scanner sc = new Scanner(System.in);
     System.out.print("Task name: "); String name = sc.nextLine();
     System.out.print("Type (quick/session/grind): "); String type = sc.nextLine();
-    System.out.print("Frequency (days, 0=one-time): "); int freq = Integer.parseInt(sc.nextLine());
+    System.out.print("Schedule (days, 0=one-time, or mon,wed,fri / 3/week): "); Recurrence schedule = Recurrence.parse(sc.nextLine());
     System.out.print("Major element name: "); String maj = sc.nextLine();
     System.out.print("Minor element name: "); String min = sc.nextLine();
-    int mi = getElementIdByName(maj), mn = getElementIdByName(min);
-    if (mi < 0 || mn < 0) { System.out.println("Element not found."); new Scanner(System.in).nextLine(); return; }
-    try (PreparedStatement ps = conn.prepareStatement(
-      "INSERT INTO tasks(name,type,frequency,major_elem,minor_elem) VALUES(?,?,?,?,?)")) {
-      ps.setString(1, name);
-      ps.setString(2, type);
-      ps.setInt(3, freq);
-      ps.setInt(4, mi);
-      ps.setInt(5, mn);
-      ps.executeUpdate();
-    }
+    boolean added = db.write(c -> {
+      int mi = getElementIdByName(c, maj), mn = getElementIdByName(c, min);
+      if (mi < 0 || mn < 0) return false;
+      int tid = progress.tasks().create(name, type, schedule.frequency(), mi, mn);
+      if (!schedule.isInterval()) progress.tasks().setRecurrence(tid, schedule);
+      return true;
+    });
+    if (!added) { System.out.println("Element not found."); new Scanner(System.in).nextLine(); }
+  }
+
+  private static boolean deleteTaskByName(String name) throws SQLException {
+    return db.write(c -> {
+      int tid = progress.tasks().findIdByName(name);
+      if (tid < 0) return false;
+      progress.tasks().delete(tid);
+      return true;
+    });
   }
 
   private static void deleteTask(String name) throws SQLException {
-    int tid = getTaskIdByName(name);
-    if (tid < 0) { System.out.println("Not found."); new Scanner(System.in).nextLine(); return; }
-    try (PreparedStatement ps = conn.prepareStatement("DELETE FROM tasks WHERE id = ?")) {
-      ps.setInt(1, tid);
-      ps.executeUpdate();
-    }
+    boolean deleted = deleteTaskByName(name);
+    if (!deleted) { System.out.println("Not found."); new Scanner(System.in).nextLine(); return; }
     System.out.println("Deleted."); new Scanner(System.in).nextLine();
   }
 
   private static void viewTodaysTasks() throws SQLException {
     clearScreen();
     System.out.println("-- Today's Tasks --");
-    try (PreparedStatement ps = conn.prepareStatement(
-      "SELECT name,type FROM tasks WHERE active=1 AND (last_done IS NULL OR (frequency>0 AND date('now','localtime')>=date(last_done,'+'||frequency||' days')))"
-    ); ResultSet rs = ps.executeQuery()) {
-      while (rs.next()) System.out.println("- " + rs.getString(1) + " (" + rs.getString(2) + ")");
-    }
+    db.runRead(c -> {
+      PreparedStatement ps = db.prepare(c, "SELECT name,type FROM tasks WHERE active=1 AND next_due <= ?");
+      ps.setLong(1, LocalDate.now().toEpochDay());
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) System.out.println("- " + rs.getString(1) + " (" + rs.getString(2) + ")");
+      }
+    });
     new Scanner(System.in).nextLine();
   }
 
+  /**
+   * Complete a task: grant XP, append to task_completions and bump the streak,
+   * all in one transaction so a crash never leaves a half-applied completion.
+   */
   private static void completeTaskById(int tid) throws SQLException {
-    try (PreparedStatement ps = conn.prepareStatement(
-      "SELECT type,major_elem,minor_elem,streak,frequency,last_done FROM tasks WHERE id = ?")) {
-      ps.setInt(1, tid);
-      try (ResultSet rs = ps.executeQuery()) {
-        if (!rs.next()) return;
-        String type = rs.getString(1);
-        int maj = rs.getInt(2), minr = rs.getInt(3);
-        int streak = rs.getInt(4), freq = rs.getInt(5);
-        String last = rs.getString(6);
-        if (last == null) last = "";
-
-        int base_maj = 0, base_min = 0;
-        if ("quick".equals(type)) { base_maj = 10; base_min = 5; }
-        else if ("session".equals(type)) { base_maj = 60; base_min = 30; }
-        else if ("grind".equals(type)) { base_maj = 125; base_min = 75; }
-
-        boolean focus = false;
-        try (PreparedStatement p2 = conn.prepareStatement("SELECT is_focus FROM elements WHERE id = ?")) {
-          p2.setInt(1, maj);
-          try (ResultSet r2 = p2.executeQuery()) {
-            focus = r2.next() && r2.getInt(1) == 1;
-          }
-        }
-        double maj_xp = base_maj, min_xp = base_min;
-        if (focus) { maj_xp *= 1.1; min_xp *= 1.1; }
-
-        int pct = Math.min(streak, 20);
-        maj_xp *= (1 + pct / 100.0);
-        min_xp *= (1 + pct / 100.0);
-
-        if (!last.isEmpty() && freq > 0) {
-          LocalDate lastDate = LocalDate.parse(last);
-          LocalDate due = lastDate.plusDays(freq);
-          if (LocalDate.now().isAfter(due)) { maj_xp *= 0.6; min_xp *= 0.6; }
-        }
-
-        int imaj = (int)Math.round(maj_xp), imin = (int)Math.round(min_xp);
-        try (PreparedStatement up1 = conn.prepareStatement("UPDATE elements SET xp = xp + ? WHERE id = ?")) {
-          up1.setInt(1, imaj); up1.setInt(2, maj); up1.executeUpdate();
-        }
-        try (PreparedStatement up2 = conn.prepareStatement("UPDATE elements SET xp = xp + ? WHERE id = ?")) {
-          up2.setInt(1, imin); up2.setInt(2, minr); up2.executeUpdate();
-        }
-      }
-    }
+    db.runWrite(c -> progress.complete(tid, LocalDate.now().toEpochDay(), System.currentTimeMillis()));
+  }
 
-    try (PreparedStatement ps2 = conn.prepareStatement("UPDATE tasks SET last_done = ?, streak = streak + 1 WHERE id = ?")) {
-      ps2.setString(1, nowStr());
-      ps2.setInt(2, tid);
-      ps2.executeUpdate();
-    }
+  /** completeTaskById without waiting: queued to the writer, which may commit it with other clicks. */
+  private static CompletableFuture<Void> completeTaskAsync(int tid) {
+    return db.submitAction(c -> progress.complete(tid, LocalDate.now().toEpochDay(), System.currentTimeMillis()));
   }
 
   private static void completeTask(String name) throws SQLException {
-    int tid = getTaskIdByName(name);
+    int tid = db.read(c -> getTaskIdByName(c, name));
     if (tid < 0) { System.out.println("Not found."); new Scanner(System.in).nextLine(); return; }
     completeTaskById(tid);
     System.out.println("Task completed!"); // pause not strictly necessary
   }
 
   private static void grantBaseXp(String type, String majEle, String minEle) throws SQLException {
-    int majId = getElementIdByName(majEle), minId = getElementIdByName(minEle);
-    if (majId < 0 || minId < 0) { System.out.println("Element not found."); return; }
-    int base_maj = 0, base_min = 0;
-    if ("quick".equals(type)) { base_maj = 10; base_min = 5; }
-    else if ("session".equals(type)) { base_maj = 60; base_min = 30; }
-    else if ("grind".equals(type)) { base_maj = 125; base_min = 75; }
-
-    boolean focus = false;
-    try (PreparedStatement p = conn.prepareStatement("SELECT is_focus FROM elements WHERE id = ?")) {
-      p.setInt(1, majId);
-      try (ResultSet r = p.executeQuery()) { focus = r.next() && r.getInt(1) == 1; }
-    }
-    if (focus) { base_maj += base_maj / 10; base_min += base_min / 10; }
+    boolean granted = db.write(c -> {
+      int majId = getElementIdByName(c, majEle), minId = getElementIdByName(c, minEle);
+      if (majId < 0 || minId < 0) return false;
+
+      // Base XP only: no streak bonus, never late
+      int[] xp = new int[2];
+      XpRules rules = progress.rules();
+      XpEngine.score(rules, rules.typeCode(type), getElementDomainId(c, majId), isFocusElement(c, majId), 0, false, xp, 0);
+      progress.profile().addElementXp(new int[] { majId, minId }, xp, 2);
+      return true;
+    });
+    if (!granted) { System.out.println("Element not found."); return; }
+    System.out.println("XP granted."); new Scanner(System.in).nextLine();
+  }
 
-    try (PreparedStatement up = conn.prepareStatement("UPDATE elements SET xp = xp + ? WHERE id = ?")) {
-      up.setInt(1, base_maj); up.setInt(2, majId); up.executeUpdate();
-    }
-    try (PreparedStatement up = conn.prepareStatement("UPDATE elements SET xp = xp + ? WHERE id = ?")) {
-      up.setInt(1, base_min); up.setInt(2, minId); up.executeUpdate();
+  /** Store an XP rule and swap in the reloaded rule set; scoring never reads xp_rules itself. */
+  private static void saveXpRule(String type, int domainId, XpRules.Rule rule) throws SQLException {
+    xpRules.put(type, domainId, rule);
+    progress.setRules(xpRules.load());
+  }
+
+  /**
+   * Apply the XP rule and formula edits among the command-line args before the GUI starts:
+   *   --xp-rule=type[@domain]:major,minor,focus bonus,streak cap %,late factor
+   *   --xp-formula=name=expression, --xp-formula-off=name, --xp-formula-on=name
+   * e.g. --xp-rule=grind@Fitness:150,90,1.1,20,0.6. A malformed one is reported and skipped.
+   */
+  private static void applyXpArgs(String[] args) throws SQLException {
+    for (String a : args) {
+      try {
+        if (a.startsWith("--xp-formula=")) {
+          String spec = a.substring("--xp-formula=".length());
+          int eq = spec.indexOf('=');
+          if (eq <= 0) throw new IllegalArgumentException("expected name=expression");
+          saveXpFormula(spec.substring(0, eq).trim(), spec.substring(eq + 1));
+          System.out.println("XP formula saved: " + spec);
+          continue;
+        }
+        if (a.startsWith("--xp-formula-off=") || a.startsWith("--xp-formula-on=")) {
+          boolean on = a.startsWith("--xp-formula-on=");
+          String name = a.substring(a.indexOf('=') + 1).trim();
+          if (!setXpFormulaActive(name, on)) throw new IllegalArgumentException("no XP formula named " + name);
+          System.out.println("XP formula " + name + (on ? " on" : " off"));
+          continue;
+        }
+        if (!a.startsWith("--xp-rule=")) continue;
+        String spec = a.substring("--xp-rule=".length());
+        int colon = spec.indexOf(':');
+        if (colon < 0) throw new IllegalArgumentException("expected type[@domain]:values");
+        String head = spec.substring(0, colon);
+        int at = head.indexOf('@');
+        String type = (at < 0 ? head : head.substring(0, at)).trim().toLowerCase();
+        int domainId = XpRules.ANY_DOMAIN;
+        if (at >= 0) {
+          String domain = head.substring(at + 1).trim();
+          domainId = db.read(c -> getDomainIdByName(c, domain));
+          if (domainId < 0) throw new IllegalArgumentException("no domain named " + domain);
+        }
+        if (type.isEmpty()) throw new IllegalArgumentException("no task type");
+        saveXpRule(type, domainId, XpRules.Rule.parse(spec.substring(colon + 1)));
+        System.out.println("XP rule saved: " + spec);
+      } catch (IllegalArgumentException e) {
+        System.err.println("Ignoring " + a + ": " + e.getMessage());
+      }
     }
-    System.out.println("XP granted."); new Scanner(System.in).nextLine();
+  }
+
+  /** Store an XP formula (see XpFormula) and swap in the reloaded rule set. */
+  private static void saveXpFormula(String name, String expr) throws SQLException {
+    xpRules.putFormula(name, expr);
+    progress.setRules(xpRules.load());
+  }
+
+  /** Turn a stored XP formula on or off and swap in the reloaded rule set; false if there is none by that name. */
+  private static boolean setXpFormulaActive(String name, boolean active) throws SQLException {
+    if (!xpRules.setFormulaActive(name, active)) return false;
+    progress.setRules(xpRules.load());
+    return true;
   }
 
   private static void makeFocus(String elemName) throws SQLException {
-    int eid = getElementIdByName(elemName);
-    if (eid < 0) { System.out.println("Element not found."); new Scanner(System.in).nextLine(); return; }
+    String error = db.write(c -> {
+      int eid = getElementIdByName(c, elemName);
+      if (eid < 0) return "Element not found.";
+      int domId = getElementDomainId(c, eid);
+      if (domId == -1) return "Domain not found.";
+      setFocusElement(c, domId, eid);
+      return null;
+    });
+    System.out.println(error != null ? error : "Focus updated successfully."); new Scanner(System.in).nextLine();
+  }
 
-    int domId = -1;
-    try (PreparedStatement ps = conn.prepareStatement("SELECT domain_id FROM elements WHERE id = ?")) {
-      ps.setInt(1, eid);
-      try (ResultSet rs = ps.executeQuery()) { if (rs.next()) domId = rs.getInt(1); }
-    }
-    if (domId == -1) { System.out.println("Domain not found."); new Scanner(System.in).nextLine(); return; }
+  private static int getElementDomainId(Connection c, int eid) throws SQLException {
+    PreparedStatement ps = db.prepare(c, "SELECT domain_id FROM elements WHERE id = ?");
+    ps.setInt(1, eid);
+    try (ResultSet rs = ps.executeQuery()) { return rs.next() ? rs.getInt(1) : -1; }
+  }
 
-    try (PreparedStatement ps = conn.prepareStatement("UPDATE elements SET is_focus = 0 WHERE domain_id = ?")) {
-      ps.setInt(1, domId); ps.executeUpdate();
-    }
-    try (PreparedStatement ps = conn.prepareStatement("UPDATE elements SET is_focus = 1 WHERE id = ?")) {
-      ps.setInt(1, eid); ps.executeUpdate();
+  /** Make eid the only focus element of its domain. */
+  private static void setFocusElement(Connection c, int domId, int eid) throws SQLException {
+    PreparedStatement clear = db.prepare(c, "UPDATE elements SET is_focus = 0 WHERE domain_id = ?");
+    clear.setInt(1, domId); clear.executeUpdate();
+    PreparedStatement set = db.prepare(c, "UPDATE elements SET is_focus = 1 WHERE id = ?");
+    set.setInt(1, eid); set.executeUpdate();
+  }
+
+  /**
+   * Editable fields of a task (shared by the terminal and GUI edit flows)
+   */
+  private static class TaskFields {
+    String name, type;
+    Recurrence schedule;
+    int maj, min;
+  }
+
+  /** Current editable fields of a task, or null if it does not exist. */
+  private static TaskFields fetchTaskFields(Connection c, int tid) throws SQLException {
+    PreparedStatement ps = db.prepare(c,
+        "SELECT name, type, frequency, major_elem, minor_elem, recurrence FROM tasks WHERE id = ?");
+    ps.setInt(1, tid);
+    try (ResultSet rs = ps.executeQuery()) {
+      if (!rs.next()) return null;
+      TaskFields f = new TaskFields();
+      f.name = rs.getString(1);
+      f.type = rs.getString(2);
+      f.schedule = Recurrence.of(rs.getString(6), rs.getInt(3));
+      f.maj = rs.getInt(4);
+      f.min = rs.getInt(5);
+      return f;
     }
-    System.out.println("Focus updated successfully."); new Scanner(System.in).nextLine();
+  }
+
+  private static boolean isFocusElement(Connection c, int eid) throws SQLException {
+    PreparedStatement ps = db.prepare(c, "SELECT is_focus FROM elements WHERE id = ?");
+    ps.setInt(1, eid);
+    try (ResultSet rs = ps.executeQuery()) { return rs.next() && rs.getInt(1) == 1; }
+  }
+
+  private static String getElementName(Connection c, int eid) throws SQLException {
+    PreparedStatement ps = db.prepare(c, "SELECT name FROM elements WHERE id = ?");
+    ps.setInt(1, eid);
+    try (ResultSet rs = ps.executeQuery()) { return rs.next() ? rs.getString(1) : null; }
+  }
+
+  private static void updateTask(Connection c, int tid, String name, String type, Recurrence schedule, int maj, int min) throws SQLException {
+    PreparedStatement up = db.prepare(c,
+        "UPDATE tasks SET name = ?, type = ?, major_elem = ?, minor_elem = ? WHERE id = ?");
+    up.setString(1, name);
+    up.setString(2, type);
+    up.setInt(3, maj);
+    up.setInt(4, min);
+    up.setInt(5, tid);
+    up.executeUpdate();
+    progress.tasks().setRecurrence(tid, schedule);
+  }
+
+  /** A schedule as shown in the edit fields: plain days for intervals, else the spec. */
+  private static String scheduleText(Recurrence r) {
+    return r.isInterval() ? String.valueOf(r.days) : r.toString();
   }
 
   // -------------------- NEW: edit task (terminal) -----------------------
@@ -448,36 +441,27 @@ public class Main {
    */
   private static void editTask(String taskName) {
     try {
-      int tid = getTaskIdByName(taskName);
+      int tid = db.read(c -> getTaskIdByName(c, taskName));
       if (tid < 0) { System.out.println("Task not found."); return; }
 
       // fetch current fields
       String curName = null, curType = null;
-      int curFreq = 0, curMaj = -1, curMin = -1;
+      Recurrence curSchedule = Recurrence.every(0);
+      int curMaj = -1, curMin = -1;
       String curMajName = null, curMinName = null;
 
-      try (PreparedStatement ps = conn.prepareStatement(
-          "SELECT name, type, frequency, major_elem, minor_elem FROM tasks WHERE id = ?")) {
-        ps.setInt(1, tid);
-        try (ResultSet rs = ps.executeQuery()) {
-          if (rs.next()) {
-            curName = rs.getString(1);
-            curType = rs.getString(2);
-            curFreq = rs.getInt(3);
-            curMaj = rs.getInt(4);
-            curMin = rs.getInt(5);
-          }
-        }
+      TaskFields cur = db.read(c -> fetchTaskFields(c, tid));
+      if (cur != null) {
+        curName = cur.name;
+        curType = cur.type;
+        curSchedule = cur.schedule;
+        curMaj = cur.maj;
+        curMin = cur.min;
       }
       // resolve element names for display
-      try (PreparedStatement ps = conn.prepareStatement("SELECT name FROM elements WHERE id = ?")) {
-        ps.setInt(1, curMaj);
-        try (ResultSet rs = ps.executeQuery()) { if (rs.next()) curMajName = rs.getString(1); }
-      }
-      try (PreparedStatement ps = conn.prepareStatement("SELECT name FROM elements WHERE id = ?")) {
-        ps.setInt(1, curMin);
-        try (ResultSet rs = ps.executeQuery()) { if (rs.next()) curMinName = rs.getString(1); }
-      }
+      final int fMaj = curMaj, fMin = curMin;
+      curMajName = db.read(c -> getElementName(c, fMaj));
+      curMinName = db.read(c -> getElementName(c, fMin));
 
       Scanner sc = new Scanner(System.in);
       System.out.println("-- Edit Task -- (press ENTER to keep current)");
@@ -489,14 +473,14 @@ public class Main {
       String typeIn = sc.nextLine().trim();
       if (typeIn.isEmpty()) typeIn = curType;
 
-      System.out.print("Frequency days (0=one-time) [" + curFreq + "]: ");
+      System.out.print("Schedule (days, 0=one-time, or mon,wed,fri / 3/week) [" + scheduleText(curSchedule) + "]: ");
       String freqIn = sc.nextLine().trim();
-      int freqOut = curFreq;
+      Recurrence scheduleOut = curSchedule;
       if (!freqIn.isEmpty()) {
         try {
-          freqOut = Integer.parseInt(freqIn);
-        } catch (NumberFormatException nfe) {
-          System.out.println("Invalid frequency. Aborting edit.");
+          scheduleOut = Recurrence.parse(freqIn);
+        } catch (IllegalArgumentException e) {
+          System.out.println(e.getMessage() + ". Aborting edit.");
           return;
         }
       }
@@ -505,7 +489,7 @@ public class Main {
       String majIn = sc.nextLine().trim();
       int majIdOut = curMaj;
       if (!majIn.isEmpty()) {
-        int mid = getElementIdByName(majIn);
+        int mid = db.read(c -> getElementIdByName(c, majIn));
         if (mid < 0) { System.out.println("Major element not found. Aborting edit."); return; }
         majIdOut = mid;
       }
@@ -514,21 +498,15 @@ public class Main {
       String minIn = sc.nextLine().trim();
       int minIdOut = curMin;
       if (!minIn.isEmpty()) {
-        int mnid = getElementIdByName(minIn);
+        int mnid = db.read(c -> getElementIdByName(c, minIn));
         if (mnid < 0) { System.out.println("Minor element not found. Aborting edit."); return; }
         minIdOut = mnid;
       }
 
-      try (PreparedStatement up = conn.prepareStatement(
-          "UPDATE tasks SET name = ?, type = ?, frequency = ?, major_elem = ?, minor_elem = ? WHERE id = ?")) {
-        up.setString(1, nameIn);
-        up.setString(2, typeIn);
-        up.setInt(3, freqOut);
-        up.setInt(4, majIdOut);
-        up.setInt(5, minIdOut);
-        up.setInt(6, tid);
-        up.executeUpdate();
-      }
+      final String fName = nameIn, fType = typeIn;
+      final Recurrence fSchedule = scheduleOut;
+      final int fMajOut = majIdOut, fMinOut = minIdOut;
+      db.runWrite(c -> updateTask(c, tid, fName, fType, fSchedule, fMajOut, fMinOut));
 
       System.out.println("Task updated.");
     } catch (SQLException ex) {
@@ -538,129 +516,35 @@ public class Main {
   }
 
   // -------------------- daily log ---------------------------------------
-  private static void logTodayXp() throws SQLException {
-    String today = nowStr();
-    try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM xp_log WHERE date = ?")) {
-      ps.setString(1, today);
-      try (ResultSet rs = ps.executeQuery()) {
-        if (rs.next()) return; // already logged
-      }
-    }
-
-    int dlt = getTaskIdByName("daily_login");
-    if (dlt >= 0) completeTaskById(dlt);
-
-    // Check for overdue tasks and apply XP penalties
-    checkAndApplyOverduePenalties();
-
-    List<Double> dx = fetchDomainXPs();
-    double prod = 1.0;
-    for (double x : dx) prod *= x;
-    double px = Math.pow(prod, 1.0 / 4.0);
-    insertXpLog(dx, px);
+  /**
+   * Bring xp_log up to today. Days since the last logged day that the app was not
+   * opened are replayed in order first: each gets its overdue penalties and its
+   * own xp_log snapshot. Then, once per day, daily_login is completed and today is
+   * logged. Today's penalties run on every call (after daily_login, so it is never
+   * penalized on login day); last_penalty_date keeps them to once per task per day.
+   * Everything happens in one transaction.
+   */
+  private static ProgressService.PenaltySummary logTodayXp(long today) throws SQLException {
+    return db.write(c -> progress.logToday(today, System.currentTimeMillis()));
   }
 
-  // -------------------- overdue task penalties ---------------------------
-  private static void checkAndApplyOverduePenalties() throws SQLException {
-    // Get all active tasks that are overdue
-    try (PreparedStatement ps = conn.prepareStatement(
-      "SELECT t.id, t.name, t.type, t.major_elem, t.minor_elem, t.frequency, t.last_done, t.last_penalty_date " +
-      "FROM tasks t " +
-      "WHERE t.active = 1 AND t.frequency > 0 AND t.last_done IS NOT NULL " +
-      "AND date('now','localtime') > date(t.last_done,'+'||t.frequency||' days') " +
-      "AND (t.last_penalty_date IS NULL OR t.last_penalty_date != date('now','localtime'))")) {
-      
-      try (ResultSet rs = ps.executeQuery()) {
-        while (rs.next()) {
-          int taskId = rs.getInt("id");
-          String taskName = rs.getString("name");
-          String type = rs.getString("type");
-          int majorElem = rs.getInt("major_elem");
-          int minorElem = rs.getInt("minor_elem");
-          int frequency = rs.getInt("frequency");
-          String lastDone = rs.getString("last_done");
-          
-          // Calculate XP penalty (same as completion XP but negative)
-          int base_maj = 0, base_min = 0;
-          if ("quick".equals(type)) { base_maj = 10; base_min = 5; }
-          else if ("session".equals(type)) { base_maj = 60; base_min = 30; }
-          else if ("grind".equals(type)) { base_maj = 125; base_min = 75; }
-          
-          // Check if major element is focus
-          boolean focus = false;
-          try (PreparedStatement p2 = conn.prepareStatement("SELECT is_focus FROM elements WHERE id = ?")) {
-            p2.setInt(1, majorElem);
-            try (ResultSet r2 = p2.executeQuery()) {
-              focus = r2.next() && r2.getInt(1) == 1;
-            }
-          }
-          
-          // Apply focus bonus
-          double maj_xp = base_maj, min_xp = base_min;
-          if (focus) { maj_xp *= 1.1; min_xp *= 1.1; }
-          
-          // Apply streak bonus (capped at 20%)
-          int streak = 0;
-          try (PreparedStatement sPs = conn.prepareStatement("SELECT streak FROM tasks WHERE id = ?")) {
-            sPs.setInt(1, taskId);
-            try (ResultSet sRs = sPs.executeQuery()) {
-              if (sRs.next()) streak = sRs.getInt(1);
-            }
-          }
-          int pct = Math.min(streak, 20);
-          maj_xp *= (1 + pct / 100.0);
-          min_xp *= (1 + pct / 100.0);
-          
-          // Apply overdue penalty (40% reduction = 60% of original)
-          maj_xp *= 0.6;
-          min_xp *= 0.6;
-          
-          // Convert to negative values for deduction
-          int maj_penalty = -(int)Math.round(maj_xp);
-          int min_penalty = -(int)Math.round(min_xp);
-          
-          // Apply XP penalties
-          try (PreparedStatement up1 = conn.prepareStatement("UPDATE elements SET xp = xp + ? WHERE id = ?")) {
-            up1.setInt(1, maj_penalty); 
-            up1.setInt(2, majorElem); 
-            up1.executeUpdate();
-          }
-          try (PreparedStatement up2 = conn.prepareStatement("UPDATE elements SET xp = xp + ? WHERE id = ?")) {
-            up2.setInt(1, min_penalty); 
-            up2.setInt(2, minorElem); 
-            up2.executeUpdate();
-          }
-          
-          // Update last penalty date to prevent multiple penalties per day
-          try (PreparedStatement up3 = conn.prepareStatement("UPDATE tasks SET last_penalty_date = ? WHERE id = ?")) {
-            up3.setString(1, nowStr());
-            up3.setInt(2, taskId);
-            up3.executeUpdate();
-          }
-          
-          System.out.println("XP Penalty applied for overdue task: " + taskName + 
-                           " (Major: " + maj_penalty + ", Minor: " + min_penalty + ")");
-        }
-      }
-    }
+  // -------------------- toggle tasks -----------------------------------
+  private static boolean setTaskActive(String name, boolean active) throws SQLException {
+    return db.write(c -> {
+      int tid = progress.tasks().findIdByName(name);
+      if (tid < 0) return false;
+      progress.tasks().setActive(tid, active);
+      return true;
+    });
   }
 
-  // -------------------- toggle tasks -----------------------------------
   private static void enableTask(String name) throws SQLException {
-    int tid = getTaskIdByName(name);
-    if (tid < 0) System.out.println("Task not found.");
-    else try (PreparedStatement ps = conn.prepareStatement("UPDATE tasks SET active = 1 WHERE id = ?")) {
-      ps.setInt(1, tid); ps.executeUpdate(); System.out.println("Task enabled.");
-    }
+    System.out.println(setTaskActive(name, true) ? "Task enabled." : "Task not found.");
     new Scanner(System.in).nextLine();
   }
 
   private static void disableTask(String name) throws SQLException {
-    int tid = getTaskIdByName(name);
-    if (tid < 0) System.out.println("Task not found.");
-    else try (PreparedStatement ps = conn.prepareStatement("UPDATE tasks SET active = 0 WHERE id = ?")) {
-      ps.setInt(1, tid); ps.executeUpdate(); System.out.println("Task disabled.");
-    }
+    System.out.println(setTaskActive(name, false) ? "Task disabled." : "Task not found.");
     new Scanner(System.in).nextLine();
   }
 
@@ -697,41 +581,30 @@ public class Main {
    * Console profile view - delegates to ProfilePage
    */
   private static void viewProfile() throws SQLException {
-    ProfilePage.viewProfile(conn);
+    ProfilePage.viewProfile(snapshots.current());
   }
 
   private static void viewDomain(String choice) throws SQLException {
-    List<int[]> domains = new ArrayList<>(); // [id, ignored], store names in map
-    Map<Integer, String> nameMap = new HashMap<>();
-    try (PreparedStatement ps = conn.prepareStatement("SELECT id,name FROM domains ORDER BY id");
-         ResultSet rs = ps.executeQuery()) {
-      while (rs.next()) {
-        int id = rs.getInt(1); String nm = rs.getString(2);
-        domains.add(new int[]{id});
-        nameMap.put(id, nm);
-      }
-    }
-    int did = -1;
-    for (Map.Entry<Integer,String> e : nameMap.entrySet()) if (e.getValue().equals(choice)) did = e.getKey();
+    int did = db.read(c -> getDomainIdByName(c, choice));
     if (did < 0) { System.out.println("Domain not found."); new Scanner(System.in).nextLine(); return; }
 
-    String user = "";
-    try (PreparedStatement p = conn.prepareStatement("SELECT name FROM user WHERE id=1");
-         ResultSet r = p.executeQuery()) { if (r.next()) user = r.getString(1); }
-
     class Elem { String name; double xp; boolean focus; }
     List<Elem> elems = new ArrayList<>();
-    double totalXP = 0;
-    try (PreparedStatement ps = conn.prepareStatement("SELECT name,xp,is_focus FROM elements WHERE domain_id = ?")) {
+    String user = db.read(c -> {
+      PreparedStatement ps = db.prepare(c, "SELECT name,xp,is_focus FROM elements WHERE domain_id = ?");
       ps.setInt(1, did);
       try (ResultSet rs = ps.executeQuery()) {
         while (rs.next()) {
           Elem e = new Elem();
           e.name = rs.getString(1); e.xp = rs.getDouble(2); e.focus = rs.getInt(3) == 1;
-          elems.add(e); totalXP += e.xp;
+          elems.add(e);
         }
       }
-    }
+      PreparedStatement p = db.prepare(c, "SELECT name FROM user WHERE id=1");
+      try (ResultSet r = p.executeQuery()) { return r.next() ? r.getString(1) : ""; }
+    });
+    double totalXP = 0;
+    for (Elem e : elems) totalXP += e.xp;
     elems.sort((a,b) -> Double.compare(b.xp, a.xp));
     double lvlF = Math.sqrt(totalXP / XP_MAX) * 8.0;
     int lvl = Math.min(8, Math.max(0, (int)lvlF));
@@ -758,17 +631,20 @@ public class Main {
   private static void viewAllTasks() throws SQLException {
     clearScreen();
     System.out.println("-- All Tasks --");
-    try (PreparedStatement ps = conn.prepareStatement(
-      "SELECT name, type, frequency, last_done, streak, active FROM tasks ORDER BY id");
-         ResultSet rs = ps.executeQuery()) {
-      while (rs.next()) {
-        String name = rs.getString(1), type = rs.getString(2);
-        int freq = rs.getInt(3); String ld = rs.getString(4);
-        int streak = rs.getInt(5), active = rs.getInt(6);
-        System.out.println("- " + name + " [" + type + "] freq=" + freq + " last_done=" + (ld == null ? "never" : ld)
-          + " streak=" + streak + " " + (active==1 ? "ENABLED" : "DISABLED"));
+    db.runRead(c -> {
+      PreparedStatement ps = db.prepare(c,
+          "SELECT name, type, frequency, last_done, streak, active, recurrence FROM tasks ORDER BY id");
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          String name = rs.getString(1), type = rs.getString(2);
+          // the schedule as entered; frequency alone is only its streak gap for weekday and quota tasks
+          Recurrence schedule = Recurrence.of(rs.getString(7), rs.getInt(3)); String ld = rs.getString(4);
+          int streak = rs.getInt(5), active = rs.getInt(6);
+          System.out.println("- " + name + " [" + type + "] schedule=" + schedule + " last_done=" + (ld == null ? "never" : ld)
+            + " streak=" + streak + " " + (active==1 ? "ENABLED" : "DISABLED"));
+        }
       }
-    }
+    });
     new Scanner(System.in).nextLine();
   }
 
@@ -794,12 +670,29 @@ public class Main {
 
   // -------------------- JavaFX Home GUI (ONLY) --------------------------
   public static class GuiApp extends Application {
-    private VBox tasksBox;
+    // Items of todayList besides the DueRow/DoneRow models: the empty-list message
+    // and the "Completed Today" header, after which the DoneRows follow
+    private static final String NO_TASKS = "no-tasks";
+    private static final String COMPLETED_SECTION = "completed-today";
+    // Domain bar colors, cycled by domain id: pink, green, blue, purple (see home.css)
+    private static final String[] DOMAIN_CLASSES = {"domain-0", "domain-1", "domain-2", "domain-3"};
+    private static final javafx.css.PseudoClass OVERDUE = javafx.css.PseudoClass.getPseudoClass("overdue");
+    private ListView<Object> todayList;
+    // Tasks whose Complete click is still on its way to the database
+    private final Set<Integer> completing = new HashSet<>();
     private Stage mainStage;
+    // Background jobs: one virtual thread each, cancelled with the window that started them
+    private UiTasks ui;
+    private UiTasks.Scope homeJobs;
+    private UiTasks.Scope allTasksJobs;
+    // Bumped per load; a load whose number is no longer current is not applied
+    private long todayLoads, doneLoads, allTasksLoads;
 
     @Override
     public void start(Stage primaryStage) {
       this.mainStage = primaryStage;
+      ui = new UiTasks(this::showError);
+      homeJobs = ui.scope(mainStage);
       
       // Show welcome screen first
       showWelcomeScreen();
@@ -838,17 +731,8 @@ public class Main {
       
       // Welcome message
       String userName = "Kabir"; // Default fallback
-      try {
-        try (PreparedStatement ps = conn.prepareStatement("SELECT name FROM user WHERE id=1")) {
-          try (ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) {
-              userName = rs.getString(1);
-            }
-          }
-        }
-      } catch (Exception e) {
-        System.out.println("Could not fetch user name: " + e.getMessage());
-      }
+      String stored = snapshots.current().userName();
+      if (!stored.isEmpty()) userName = stored;
       
       Label welcomeLabel = new Label("Welcome back " + userName + "!");
       welcomeLabel.setStyle("-fx-font-size: 28px; " +
@@ -930,52 +814,25 @@ public class Main {
       profileBtn.setOnAction(e -> {
         // show GUI profile (not console)
         profileBtn.setDisable(true);
-        new Thread(() -> {
-          try {
-            Platform.runLater(() -> {
-              showProfileGui(profileBtn.getScene().getWindow());
-              profileBtn.setDisable(false);
-              refreshTasks(); // refresh after closing profile GUI
-            });
-          } catch (Exception ex) {
-            ex.printStackTrace();
-            Platform.runLater(() -> profileBtn.setDisable(false));
-          }
-        }).start();
+        showProfileGui(profileBtn.getScene().getWindow());
+        profileBtn.setDisable(false);
+        refreshTasks(); // refresh after closing profile GUI
       });
 
       Button leaderboardBtn = new Button("Leaderboard");
       leaderboardBtn.getStyleClass().addAll("btn","btn-secondary");
       leaderboardBtn.setOnAction(e -> {
         leaderboardBtn.setDisable(true);
-        new Thread(() -> {
-          try {
-            Platform.runLater(() -> {
-              showLeaderboardWindow(leaderboardBtn.getScene().getWindow());
-              leaderboardBtn.setDisable(false);
-            });
-          } catch (Exception ex) {
-            ex.printStackTrace();
-            Platform.runLater(() -> leaderboardBtn.setDisable(false));
-          }
-        }).start();
+        showLeaderboardWindow(leaderboardBtn.getScene().getWindow());
+        leaderboardBtn.setDisable(false);
       });
 
       Button allTasksBtn = new Button("All Tasks");
       allTasksBtn.getStyleClass().addAll("btn","btn-secondary");
       allTasksBtn.setOnAction(e -> {
         allTasksBtn.setDisable(true);
-        new Thread(() -> {
-          try {
-            Platform.runLater(() -> {
-              showAllTasksGui(allTasksBtn.getScene().getWindow());
-              allTasksBtn.setDisable(false);
-            });
-          } catch (Exception ex) {
-            ex.printStackTrace();
-            Platform.runLater(() -> allTasksBtn.setDisable(false));
-          }
-        }).start();
+        showAllTasksGui(allTasksBtn.getScene().getWindow());
+        allTasksBtn.setDisable(false);
       });
 
       HBox topBar = new HBox(10);
@@ -986,22 +843,19 @@ public class Main {
       topBar.getChildren().addAll(topLeftSection, spacer, createBtn, allTasksBtn, profileBtn, leaderboardBtn);
       root.setTop(topBar);
 
-      // Center: scrollable list of tasks with background box
+      // Center: virtualized list of tasks with background box; only the visible
+      // cells exist, and they are rebound to other rows as the list scrolls or changes
       VBox tasksContainer = new VBox(15);
       tasksContainer.setPadding(new Insets(20));
-      tasksContainer.setStyle("-fx-background-color: #2a2a35; " +
-                            "-fx-background-radius: 16px; " +
-                            "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.3), 12, 0.0, 0, 6);");
-      
-      tasksBox = new VBox(10);
-      tasksBox.setPadding(new Insets(8));
-      
-      tasksContainer.getChildren().add(tasksBox);
+      tasksContainer.getStyleClass().add("tasks-panel");
 
-      ScrollPane scroll = new ScrollPane(tasksContainer);
-      scroll.setFitToWidth(true);
-      scroll.getStyleClass().add("tasks-scroll");
-      root.setCenter(scroll);
+      todayList = new ListView<>();
+      todayList.getStyleClass().add("today-list");
+      todayList.setCellFactory(lv -> new TodayCell());
+      VBox.setVgrow(todayList, Priority.ALWAYS);
+
+      tasksContainer.getChildren().add(todayList);
+      root.setCenter(tasksContainer);
 
       Scene scene = new Scene(root);
       // apply home.css if present (same folder)
@@ -1009,8 +863,13 @@ public class Main {
 
       mainStage.setScene(scene);
 
-      // initial populate
+      // initial populate; afterwards completions move their own row and a new day diffs in the reload
       refreshTasks();
+      events.subscribe(XpEvents.TaskCompleted.class, e -> Platform.runLater(() -> completeRow(e.taskId, e.streak)));
+      // a catch-up rolls over several days in one go; only the one for today redraws
+      events.subscribe(XpEvents.DayRolledOver.class, e -> {
+        if (e.day == LocalDate.now().toEpochDay()) Platform.runLater(this::refreshTasks);
+      });
 
       mainStage.show();
     }
@@ -1018,230 +877,292 @@ public class Main {
     /**
      * NEW: fetch additional task info (major element name + domain name + domain id + streak + is_focus)
      * without changing any underlying logic. We only use a JOIN to retrieve these display fields and then attach style
-     * classes so CSS can color-code them.
+     * classes so CSS can color-code them. The query runs in the background; its rows replace the list's items when it returns.
      */
     private void refreshTasks() {
-      tasksBox.getChildren().clear();
-      String q = "SELECT t.id, t.name, t.type, t.streak, t.frequency, t.last_done, e.name AS maj_name, e.is_focus AS is_focus, d.name AS dname, d.id AS did "
-               + "FROM tasks t "
-               + "JOIN elements e ON t.major_elem = e.id "
-               + "JOIN domains d ON e.domain_id = d.id "
-               + "WHERE active=1 AND (last_done IS NULL OR (frequency>0 AND date('now','localtime')>=date(last_done,'+'||frequency||' days')))";
-      try (PreparedStatement ps = conn.prepareStatement(q); ResultSet rs = ps.executeQuery()) {
-        boolean any = false;
-        while (rs.next()) {
-          any = true;
-          int id = rs.getInt("id");
-          String name = rs.getString("name");
-          String type = rs.getString("type");
-          int streak = rs.getInt("streak");
-          int frequency = rs.getInt("frequency");
-          String lastDone = rs.getString("last_done");
-          String majName = rs.getString("maj_name");
-          boolean isFocus = rs.getInt("is_focus") == 1;
-          String dname = rs.getString("dname");
-          int did = rs.getInt("did");
-          
-          // Check if task is overdue
-          boolean isOverdue = false;
-          if (lastDone != null && frequency > 0) {
-            try {
-              LocalDate lastDate = LocalDate.parse(lastDone);
-              LocalDate dueDate = lastDate.plusDays(frequency);
-              isOverdue = LocalDate.now().isAfter(dueDate);
-            } catch (Exception e) {
-              // Ignore date parsing errors
-            }
-          }
+      long load = ++todayLoads;
+      long today = LocalDate.now().toEpochDay();
+      homeJobs.load(() -> TaskViews.today(db, today), t -> {
+        if (load == todayLoads) showToday(t);
+      });
+    }
 
-          HBox row = new HBox(12);
-          row.getStyleClass().add("task-row");
-          row.setAlignment(Pos.CENTER_LEFT);
+    private void showToday(TaskViews.Today t) {
+      doneLoads++; // whatever completed-section load is in flight is older than t
+      List<Object> items = new ArrayList<>(t.due.size() + t.done.size() + 2);
+      items.addAll(t.due);
+      if (t.due.isEmpty()) items.add(NO_TASKS);
 
-          // Left colored bar + domain info
-          Region leftBar = new Region();
-          String domainColor = GUI_COLORS[Math.max(0, (did - 1) % GUI_COLORS.length)];
-          leftBar.setStyle("-fx-background-color: " + domainColor + "; -fx-min-width: 6; -fx-max-width: 6;");
-          
-          VBox domainInfo = new VBox(2);
-          domainInfo.setPadding(new Insets(0, 12, 0, 12));
-          domainInfo.setAlignment(Pos.CENTER_LEFT);
-          
-          Label domainLabel = new Label(dname);
-          domainLabel.getStyleClass().add("domain-label");
-          domainLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 14px; -fx-text-fill: #ffffff;");
-          
-          Label elementLabel = new Label(majName);
-          elementLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #bfc9d3;");
-          
-          domainInfo.getChildren().addAll(domainLabel, elementLabel);
+      // Add completed tasks section
+      if (!t.done.isEmpty()) {
+        items.add(COMPLETED_SECTION);
+        items.addAll(t.done);
+      }
+      applyItems(items);
+      updateDueTitle();
+    }
 
-          // Center task name and meta info
-          Label nameLbl = new Label(name);
-          nameLbl.getStyleClass().add("task-name");
-          if (isOverdue) {
-            nameLbl.setStyle("-fx-font-weight: bold; -fx-font-size: 18px; -fx-font-style: italic; -fx-text-fill: #ef4444;");
-          } else {
-            nameLbl.setStyle("-fx-font-weight: bold; -fx-font-size: 18px; -fx-font-style: italic; -fx-text-fill: #ffffff;");
-          }
+    /**
+     * Turn the list's items into target by keyed edits (HomeListDiff). The
+     * focused row stays focused, and since the list is never reset its scroll
+     * position stays too.
+     */
+    private void applyItems(List<Object> target) {
+      Object focusedKey = HomeListDiff.key(todayList.getFocusModel().getFocusedItem());
+      javafx.collections.ObservableList<Object> items = todayList.getItems();
+      HomeListDiff.apply(items, target);
+      if (focusedKey != null) {
+        for (int f = 0; f < items.size(); f++) {
+          if (HomeListDiff.key(items.get(f)).equals(focusedKey)) { todayList.getFocusModel().focus(f); break; }
+        }
+      }
+    }
 
-          // Focus and type tags under task name
-          Label focusLabel = new Label(isFocus ? "★ Focus" : "");
-          focusLabel.setStyle("-fx-text-fill: #bfc9d3; -fx-font-size: 11px; -fx-background-color: rgba(255,255,255,0.1); -fx-background-radius: 8; -fx-padding: 2 8 2 8;");
-          focusLabel.setVisible(isFocus);
+    /**
+     * TaskCompleted: move the task's row from the to-do list into the completed
+     * section with the streak the event reports, touching only those two rows.
+     * Completing one task changes no other row, so nothing is reloaded. A task
+     * that is not on the list (completed somewhere else) reloads just the
+     * completed section.
+     */
+    private void completeRow(int taskId, int streak) {
+      completing.remove(taskId);
+      javafx.collections.ObservableList<Object> items = todayList.getItems();
+      int at = -1;
+      for (int i = 0; i < items.size() && items.get(i) instanceof TaskViews.DueRow; i++) {
+        if (((TaskViews.DueRow) items.get(i)).id == taskId) { at = i; break; }
+      }
+      if (at < 0) {
+        long load = ++doneLoads;
+        long today = LocalDate.now().toEpochDay();
+        homeJobs.load(() -> TaskViews.done(db, today), rows -> {
+          if (load == doneLoads) setCompletedSection(rows);
+        });
+        updateDueTitle();
+        return;
+      }
+      TaskViews.DueRow row = (TaskViews.DueRow) items.remove(at);
+      if (items.isEmpty() || !(items.get(0) instanceof TaskViews.DueRow)) items.add(0, NO_TASKS);
+      addCompletedRow(row.asDone(streak));
+      updateDueTitle();
+    }
 
-          Label typeBadge = new Label(type.toUpperCase());
-          typeBadge.setStyle("-fx-text-fill: #bfc9d3; -fx-font-size: 11px; -fx-background-color: rgba(255,255,255,0.1); -fx-background-radius: 8; -fx-padding: 2 8 2 8;");
+    /** Insert r into the completed section, which is kept in task id order. */
+    private void addCompletedRow(TaskViews.DoneRow r) {
+      javafx.collections.ObservableList<Object> items = todayList.getItems();
+      int header = items.lastIndexOf(COMPLETED_SECTION);
+      if (header < 0) {
+        items.addAll(COMPLETED_SECTION, r);
+        return;
+      }
+      int i = header + 1;
+      while (i < items.size() && ((TaskViews.DoneRow) items.get(i)).id < r.id) i++;
+      if (i < items.size() && ((TaskViews.DoneRow) items.get(i)).id == r.id) {
+        // done twice today: keep the row, but show the streak it has now
+        if (!items.get(i).equals(r)) items.set(i, r);
+        return;
+      }
+      items.add(i, r);
+    }
 
-          // Overdue indicator
-          Label overdueLabel = new Label("⚠ OVERDUE");
-          overdueLabel.setStyle("-fx-text-fill: #ef4444; -fx-font-size: 11px; -fx-background-color: rgba(239,68,68,0.2); -fx-background-radius: 8; -fx-padding: 2 8 2 8; -fx-font-weight: bold;");
-          overdueLabel.setVisible(isOverdue);
+    /** Replace the "Completed Today" section with rows (none if rows is empty). */
+    private void setCompletedSection(List<TaskViews.DoneRow> rows) {
+      List<Object> target = new ArrayList<>(todayList.getItems());
+      int at = target.indexOf(COMPLETED_SECTION);
+      if (at >= 0) target.subList(at, target.size()).clear();
+      if (!rows.isEmpty()) {
+        target.add(COMPLETED_SECTION);
+        target.addAll(rows);
+      }
+      applyItems(target);
+    }
 
-          HBox metaRow = new HBox(6, focusLabel, typeBadge, overdueLabel);
-          metaRow.setAlignment(Pos.CENTER_LEFT);
+    /** Reminder in the window title: tasks due today, and how many of them are overdue. */
+    private void updateDueTitle() {
+      long today = LocalDate.now().toEpochDay();
+      int due = dueSchedule.dueOn(today).length, overdue = dueSchedule.overdueCount(today);
+      mainStage.setTitle(due == 0 ? "xLog — Home"
+          : "xLog — Home (" + due + " due" + (overdue > 0 ? ", " + overdue + " overdue" : "") + ")");
+    }
 
-          VBox centerCol = new VBox(2, nameLbl, metaRow);
-          HBox.setHgrow(centerCol, Priority.ALWAYS);
+    /**
+     * A cell of the home list. It builds the layout for each kind of item the
+     * first time it needs it and afterwards only rebinds text and state, so the
+     * number of nodes follows the number of visible cells, not of tasks.
+     */
+    private final class TodayCell extends ListCell<Object> {
+      // due task
+      private HBox taskRow;
+      private Region leftBar;
+      private Label domainLabel, elementLabel, nameLbl, focusLabel, typeBadge, overdueLabel, streakLbl;
+      private Button done;
+      private Tooltip ttip;
+      private TaskViews.DueRow bound;
+      // completed task
+      private HBox completedRow;
+      private Label doneName, doneDomain, doneType, doneStreak;
+      // header and empty message
+      private Label completedHeader, none;
+
+      @Override
+      protected void updateItem(Object item, boolean empty) {
+        super.updateItem(item, empty);
+        bound = null;
+        getStyleClass().remove("completed-cell");
+        if (empty || item == null) {
+          setGraphic(null);
+        } else if (item instanceof TaskViews.DueRow) {
+          bindDue((TaskViews.DueRow) item);
+        } else if (item instanceof TaskViews.DoneRow) {
+          bindDone((TaskViews.DoneRow) item);
+        } else if (item == NO_TASKS) {
+          if (none == null) {
+            none = new Label("No tasks due today. 🎉");
+            none.getStyleClass().add("none-label");
+            none.setPadding(new Insets(18));
+          }
+          setGraphic(none);
+        } else {
+          if (completedHeader == null) {
+            completedHeader = new Label("Completed Today");
+            completedHeader.getStyleClass().add("completed-header");
+          }
+          getStyleClass().add("completed-cell");
+          setGraphic(completedHeader);
+        }
+      }
 
-          // Right side buttons
-          Label streakLbl = new Label((streak > 0 ? "🔥 " + streak : "—"));
-          streakLbl.getStyleClass().add("streak-badge");
+      private void bindDue(TaskViews.DueRow r) {
+        if (taskRow == null) buildDue();
+        bound = r;
+        for (String c : DOMAIN_CLASSES) leftBar.getStyleClass().remove(c);
+        leftBar.getStyleClass().add(DOMAIN_CLASSES[Math.max(0, (r.domainId - 1) % DOMAIN_CLASSES.length)]);
+        domainLabel.setText(r.domainName);
+        elementLabel.setText(r.majorName);
+        nameLbl.setText(r.name);
+        nameLbl.pseudoClassStateChanged(OVERDUE, r.overdue);
+        focusLabel.setVisible(r.focus);
+        typeBadge.setText(r.type.toUpperCase());
+        overdueLabel.setVisible(r.overdue);
+        streakLbl.setText(r.streak > 0 ? "🔥 " + r.streak : "—");
+        done.setDisable(completing.contains(r.id));
+        ttip.setText("Domain: " + r.domainName + "\nMajor: " + r.majorName + "\nType: " + r.type + "\nStreak: " + r.streak
+            + " (best " + r.bestStreak + ")\nLast 30 days: " + r.last30
+            + (r.focus ? "\nFocus: yes" : ""));
+        setGraphic(taskRow);
+      }
 
-          Button done = new Button("Complete");
-          done.getStyleClass().addAll("btn","btn-complete");
-          done.setOnAction(ev -> {
-            done.setDisable(true);
-            new Thread(() -> {
-              try {
-                completeTaskById(id);
-              } catch (Exception ex) { ex.printStackTrace(); }
-              Platform.runLater(this::refreshTasks);
-            }).start();
+      private void buildDue() {
+        taskRow = new HBox(12);
+        taskRow.getStyleClass().add("task-row");
+        taskRow.setAlignment(Pos.CENTER_LEFT);
+
+        // Left colored bar + domain info
+        leftBar = new Region();
+        leftBar.getStyleClass().add("domain-bar");
+
+        VBox domainInfo = new VBox(2);
+        domainInfo.setPadding(new Insets(0, 12, 0, 12));
+        domainInfo.setAlignment(Pos.CENTER_LEFT);
+        domainLabel = new Label();
+        domainLabel.getStyleClass().add("domain-label");
+        elementLabel = new Label();
+        elementLabel.getStyleClass().add("element-name");
+        domainInfo.getChildren().addAll(domainLabel, elementLabel);
+
+        // Center task name and meta info
+        nameLbl = new Label();
+        nameLbl.getStyleClass().add("task-name");
+
+        // Focus and type tags under task name, and the overdue indicator
+        focusLabel = new Label("★ Focus");
+        focusLabel.getStyleClass().add("task-tag");
+        typeBadge = new Label();
+        typeBadge.getStyleClass().add("task-tag");
+        overdueLabel = new Label("⚠ OVERDUE");
+        overdueLabel.getStyleClass().addAll("task-tag", "overdue-tag");
+
+        HBox metaRow = new HBox(6, focusLabel, typeBadge, overdueLabel);
+        metaRow.setAlignment(Pos.CENTER_LEFT);
+
+        VBox centerCol = new VBox(2, nameLbl, metaRow);
+        HBox.setHgrow(centerCol, Priority.ALWAYS);
+
+        // Right side buttons
+        streakLbl = new Label();
+        streakLbl.getStyleClass().add("streak-badge");
+
+        done = new Button("Complete");
+        done.getStyleClass().addAll("btn","btn-complete");
+        done.setOnAction(ev -> {
+          if (bound == null) return;
+          int id = bound.id;
+          completing.add(id);
+          done.setDisable(true);
+          completeTaskAsync(id).whenComplete((v, ex) -> {
+            if (ex == null) return;
+            ui.report(ex);
+            Platform.runLater(() -> {
+              completing.remove(id);
+              refreshTasks();
+            });
           });
+        });
 
-          HBox rightCol = new HBox(10, streakLbl, done);
-          rightCol.setAlignment(Pos.CENTER_RIGHT);
-
-          Region spacer = new Region();
-          HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox rightCol = new HBox(10, streakLbl, done);
+        rightCol.setAlignment(Pos.CENTER_RIGHT);
 
-          row.getChildren().addAll(leftBar, domainInfo, centerCol, spacer, rightCol);
-          // attach tooltip summarizing key bits
-          Tooltip ttip = new Tooltip("Domain: " + dname + "\nMajor: " + majName + "\nType: " + type + "\nStreak: " + streak + (isFocus ? "\nFocus: yes" : ""));
-          Tooltip.install(row, ttip);
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
 
-          tasksBox.getChildren().add(row);
-        }
-        if (!any) {
-          Label none = new Label("No tasks due today. 🎉");
-          none.getStyleClass().add("none-label");
-          none.setPadding(new Insets(18));
-          tasksBox.getChildren().add(none);
-        }
-        
-        // Add completed tasks section
-        addCompletedTasksSection();
-        
-      } catch (SQLException ex) {
-        ex.printStackTrace();
-        Label err = new Label("Failed to load tasks. See console for error.");
-        tasksBox.getChildren().add(err);
+        taskRow.getChildren().addAll(leftBar, domainInfo, centerCol, spacer, rightCol);
+        // tooltip summarizing key bits
+        ttip = new Tooltip();
+        Tooltip.install(taskRow, ttip);
       }
-    }
 
-    /**
-     * Add a minimal list of tasks completed today below the to-do list
-     */
-    private void addCompletedTasksSection() {
-      try (PreparedStatement ps = conn.prepareStatement(
-        "SELECT t.id, t.name, t.type, e.name AS maj_name, d.name AS dname, d.id AS did " +
-        "FROM tasks t " +
-        "JOIN elements e ON t.major_elem = e.id " +
-        "JOIN domains d ON e.domain_id = d.id " +
-        "WHERE active=1 AND date(last_done,'localtime') = date('now','localtime') " +
-        "ORDER BY t.id")) {
-        
-        ResultSet rs = ps.executeQuery();
-        boolean hasCompleted = false;
-        
-        while (rs.next()) {
-          if (!hasCompleted) {
-            // Add section header
-            Label completedHeader = new Label("Completed Today");
-            completedHeader.setStyle("-fx-font-size: 16px; -fx-font-weight: 600; -fx-text-fill: #94a3b8; -fx-padding: 16 0 8 0;");
-            
-            // Create completed tasks container with background
-            VBox completedContainer = new VBox(10);
-            completedContainer.setPadding(new Insets(16));
-            completedContainer.setStyle("-fx-background-color: #2a2a35; " +
-                                     "-fx-background-radius: 12px; " +
-                                     "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.2), 8, 0.0, 0, 4);");
-            
-            completedContainer.getChildren().add(completedHeader);
-            tasksBox.getChildren().add(completedContainer);
-            hasCompleted = true;
-          }
-          
-          int id = rs.getInt("id");
-          String name = rs.getString("name");
-          String type = rs.getString("type");
-          String majName = rs.getString("maj_name");
-          String dname = rs.getString("dname");
-          int did = rs.getInt("did");
-          
-          // Create minimal completed task row
-          HBox completedRow = new HBox(8);
+      private void bindDone(TaskViews.DoneRow r) {
+        if (completedRow == null) {
+          // Minimal completed task row: checkmark, name, domain info, type badge, streak
+          Label checkmark = new Label("✓");
+          checkmark.getStyleClass().add("completed-check");
+          doneName = new Label();
+          doneName.getStyleClass().add("completed-name");
+          doneDomain = new Label();
+          doneDomain.getStyleClass().add("completed-domain");
+          doneType = new Label();
+          doneType.getStyleClass().add("completed-type");
+          doneStreak = new Label();
+          doneStreak.getStyleClass().add("completed-type");
+          completedRow = new HBox(8, checkmark, doneName, doneDomain, doneType, doneStreak);
           completedRow.setAlignment(Pos.CENTER_LEFT);
           completedRow.setPadding(new Insets(4, 0, 4, 0));
-          
-          // Checkmark icon
-          Label checkmark = new Label("✓");
-          checkmark.setStyle("-fx-text-fill: #10b981; -fx-font-weight: bold; -fx-font-size: 14px;");
-          checkmark.setMinWidth(20);
-          
-          // Task name
-          Label taskName = new Label(name);
-          taskName.setStyle("-fx-text-fill: #94a3b8; -fx-font-size: 13px; -fx-font-style: italic;");
-          taskName.setMinWidth(200);
-          
-          // Domain info
-          Label domainInfo = new Label(dname + " • " + majName);
-          domainInfo.setStyle("-fx-text-fill: #64748b; -fx-font-size: 11px;");
-          domainInfo.setMinWidth(150);
-          
-          // Type badge
-          Label typeBadge = new Label(type.toUpperCase());
-          typeBadge.setStyle("-fx-text-fill: #64748b; -fx-font-size: 10px; -fx-background-color: rgba(255,255,255,0.05); -fx-background-radius: 6; -fx-padding: 2 6 2 6;");
-          
-          completedRow.getChildren().addAll(checkmark, taskName, domainInfo, typeBadge);
-          
-          // Find the completed container and add the row to it
-          for (Node node : tasksBox.getChildren()) {
-            if (node instanceof VBox) {
-              VBox container = (VBox) node;
-              if (container.getChildren().size() > 0 && 
-                  container.getChildren().get(0) instanceof Label) {
-                Label firstChild = (Label) container.getChildren().get(0);
-                if (firstChild.getText() != null && firstChild.getText().contains("Completed Today")) {
-                  container.getChildren().add(completedRow);
-                  break;
-                }
-              }
-            }
-          }
         }
-        
-      } catch (SQLException ex) {
-        ex.printStackTrace();
+        doneName.setText(r.name);
+        doneDomain.setText(r.domainName + " • " + r.majorName);
+        doneType.setText(r.type.toUpperCase());
+        doneStreak.setText("🔥 " + r.streak);
+        doneStreak.setVisible(r.streak > 0);
+        getStyleClass().add("completed-cell");
+        setGraphic(completedRow);
       }
     }
 
+    /** Element names for the task dialogs, from the profile snapshot rather than the database. */
+    private List<String> elementNames() {
+      ProfileSnapshot snap = snapshots.current();
+      List<String> names = new ArrayList<>(snap.elementCount());
+      for (int i = 0; i < snap.elementCount(); i++) names.add(snap.elementName(i));
+      Collections.sort(names);
+      return names;
+    }
+
     private void showCreateTaskDialog(Window owner) {
       Stage d = new Stage();
       d.initOwner(owner);
       d.initModality(Modality.APPLICATION_MODAL);
       d.setTitle("Create Task");
+      UiTasks.Scope jobs = ui.scope(d);
 
     // Main container with fancy styling
     VBox mainContainer = new VBox(0);
@@ -1374,7 +1295,7 @@ public class Main {
     
     // Frequency field (declare first for lambda access)
     TextField freqField = new TextField();
-    freqField.setPromptText("Enter frequency in days (0 = one-time)");
+    freqField.setPromptText("Days (0 = one-time), or a schedule: mon,wed,fri / 3/week");
     freqField.getStyleClass().add("fancy-text-field");
     freqField.setPrefHeight(40);
     freqField.setText("0"); // Default to one-time
@@ -1442,15 +1363,7 @@ public class Main {
     elementsHeader.getChildren().addAll(elementsIcon, elementsTitle);
     
     // Get elements for dropdowns
-    List<String> elements = new ArrayList<>();
-    try (PreparedStatement ps = conn.prepareStatement("SELECT name FROM elements ORDER BY name");
-         ResultSet rs = ps.executeQuery()) {
-      while (rs.next()) {
-        elements.add(rs.getString(1));
-      }
-    } catch (SQLException ex) {
-      ex.printStackTrace();
-    }
+    List<String> elements = elementNames();
     
     HBox elementsRow = new HBox(12);
     
@@ -1539,20 +1452,33 @@ public class Main {
       final boolean setFocus = focusToggle.isSelected();
 
         // run DB insertion in background thread to keep UI responsive
-        new Thread(() -> {
+        jobs.run(() -> {
           try {
-            int freq;
-            try { freq = Integer.parseInt(freqS); }
-            catch (NumberFormatException nfe) {
+            Recurrence schedule;
+            try { schedule = Recurrence.parse(freqS); }
+            catch (IllegalArgumentException e) {
               Platform.runLater(() -> {
                 createBtn.setDisable(false);
-                showAlert(Alert.AlertType.ERROR, d, "Invalid frequency", "Frequency must be an integer.");
+                showAlert(Alert.AlertType.ERROR, d, "Invalid frequency", e.getMessage());
               });
               return;
             }
 
-            int mi = getElementIdByName(maj), mn = getElementIdByName(min);
-            if (mi < 0 || mn < 0) {
+            boolean created = db.write(c -> {
+              int mi = getElementIdByName(c, maj), mn = getElementIdByName(c, min);
+              if (mi < 0 || mn < 0) return false;
+
+              int tid = progress.tasks().create(name, type, schedule.frequency(), mi, mn);
+              if (!schedule.isInterval()) progress.tasks().setRecurrence(tid, schedule);
+
+              // Handle focus setting if requested
+              if (setFocus) {
+                int domId = getElementDomainId(c, mi);
+                if (domId != -1) setFocusElement(c, domId, mi);
+              }
+              return true;
+            });
+            if (!created) {
               Platform.runLater(() -> {
                 createBtn.setDisable(false);
                 showAlert(Alert.AlertType.ERROR, d, "Element not found", "Major or minor element not found. (Behavior matches console: prints 'Element not found.')");
@@ -1560,41 +1486,6 @@ public class Main {
               return;
             }
 
-            try (PreparedStatement ps = conn.prepareStatement(
-              "INSERT INTO tasks(name,type,frequency,major_elem,minor_elem) VALUES(?,?,?,?,?)")) {
-              ps.setString(1, name);
-              ps.setString(2, type);
-              ps.setInt(3, freq);
-              ps.setInt(4, mi);
-              ps.setInt(5, mn);
-              ps.executeUpdate();
-            }
-
-            // Handle focus setting if requested
-            if (setFocus) {
-              // Get domain ID for the major element
-              int domId = -1;
-              try (PreparedStatement ps = conn.prepareStatement("SELECT domain_id FROM elements WHERE id = ?")) {
-                ps.setInt(1, mi);
-                try (ResultSet rs = ps.executeQuery()) { 
-                  if (rs.next()) domId = rs.getInt(1); 
-                }
-              }
-              
-              if (domId != -1) {
-                // Unfocus all elements in the same domain
-                try (PreparedStatement ps = conn.prepareStatement("UPDATE elements SET is_focus = 0 WHERE domain_id = ?")) {
-                  ps.setInt(1, domId); 
-                  ps.executeUpdate();
-                }
-                // Set the major element as focus
-                try (PreparedStatement ps = conn.prepareStatement("UPDATE elements SET is_focus = 1 WHERE id = ?")) {
-                  ps.setInt(1, mi); 
-                  ps.executeUpdate();
-                }
-              }
-            }
-
             Platform.runLater(() -> {
               // close dialog and refresh tasks view
               d.close();
@@ -1607,7 +1498,7 @@ public class Main {
               showAlert(Alert.AlertType.ERROR, d, "Database error", ex.getMessage());
             });
           }
-        }).start();
+        });
       });
 
       Scene sc = new Scene(mainContainer, 800, 700);
@@ -1622,6 +1513,7 @@ public class Main {
       d.initOwner(owner);
       d.initModality(Modality.APPLICATION_MODAL);
       d.setTitle("Edit Task — " + taskName);
+      UiTasks.Scope jobs = ui.scope(d);
 
       // Main container with fancy styling
       VBox mainContainer = new VBox(0);
@@ -1753,7 +1645,7 @@ public class Main {
       
       // Frequency field (declare first for lambda access)
       TextField freqField = new TextField();
-      freqField.setPromptText("Enter frequency in days (0 = one-time)");
+      freqField.setPromptText("Days (0 = one-time), or a schedule: mon,wed,fri / 3/week");
       freqField.getStyleClass().add("fancy-text-field");
       freqField.setPrefHeight(40);
       
@@ -1819,15 +1711,7 @@ public class Main {
       elementsTitle.getStyleClass().add("section-title");
       elementsHeader.getChildren().addAll(elementsIcon, elementsTitle);
       // Get elements for dropdowns
-      List<String> elements = new ArrayList<>();
-      try (PreparedStatement ps = conn.prepareStatement("SELECT name FROM elements ORDER BY name");
-           ResultSet rs = ps.executeQuery()) {
-        while (rs.next()) {
-          elements.add(rs.getString(1));
-        }
-      } catch (SQLException ex) {
-        ex.printStackTrace();
-      }
+      List<String> elements = elementNames();
       
       HBox elementsRow = new HBox(12);
       
@@ -1895,63 +1779,38 @@ public class Main {
       mainContainer.getChildren().addAll(headerSection, scrollPane, footerSection);
 
       // Pre-fill from DB (same fields as TUI)
-      new Thread(() -> {
+      jobs.run(() -> {
         String curName = null, curType = null;
-        int curFreq = 0, curMaj = -1, curMin = -1;
+        String curSchedule = "0";
+        int curMaj = -1, curMin = -1;
         String curMajName = null, curMinName = null;
 
-        try (PreparedStatement ps = conn.prepareStatement(
-               "SELECT id FROM tasks WHERE name = ?")) {
-          ps.setString(1, taskName);
-          try (ResultSet rs = ps.executeQuery()) {
-            if (!rs.next()) {
-              Platform.runLater(() -> showAlert(Alert.AlertType.ERROR, d, "Not found", "Task not found."));
-              return;
-            }
-            int tid = rs.getInt(1);
-
-            try (PreparedStatement ps2 = conn.prepareStatement(
-                   "SELECT name, type, frequency, major_elem, minor_elem FROM tasks WHERE id = ?")) {
-              ps2.setInt(1, tid);
-              try (ResultSet r2 = ps2.executeQuery()) {
-                if (r2.next()) {
-                  curName = r2.getString(1);
-                  curType = r2.getString(2);
-                  curFreq = r2.getInt(3);
-                  curMaj = r2.getInt(4);
-                  curMin = r2.getInt(5);
-                }
-              }
-            }
-            try (PreparedStatement pn = conn.prepareStatement("SELECT name FROM elements WHERE id = ?")) {
-              pn.setInt(1, curMaj);
-              try (ResultSet rn = pn.executeQuery()) { if (rn.next()) curMajName = rn.getString(1); }
-            }
-            try (PreparedStatement pn = conn.prepareStatement("SELECT name FROM elements WHERE id = ?")) {
-              pn.setInt(1, curMin);
-              try (ResultSet rn = pn.executeQuery()) { if (rn.next()) curMinName = rn.getString(1); }
-            }
+        boolean isCurrentFocus = false;
+        try {
+          TaskFields cur = db.read(c -> {
+            int tid = getTaskIdByName(c, taskName);
+            return tid < 0 ? null : fetchTaskFields(c, tid);
+          });
+          if (cur == null) {
+            Platform.runLater(() -> showAlert(Alert.AlertType.ERROR, d, "Not found", "Task not found."));
+            return;
           }
+          curName = cur.name;
+          curType = cur.type;
+          curSchedule = scheduleText(cur.schedule);
+          curMaj = cur.maj;
+          curMin = cur.min;
+          curMajName = db.read(c -> getElementName(c, cur.maj));
+          curMinName = db.read(c -> getElementName(c, cur.min));
+          // Check if current major element is focus
+          if (curMaj > 0) isCurrentFocus = db.read(c -> isFocusElement(c, cur.maj));
         } catch (SQLException ex) {
           ex.printStackTrace();
         }
 
-        // Check if current major element is focus
-        boolean isCurrentFocus = false;
-        if (curMaj > 0) {
-          try (PreparedStatement ps = conn.prepareStatement("SELECT is_focus FROM elements WHERE id = ?")) {
-            ps.setInt(1, curMaj);
-            try (ResultSet rs = ps.executeQuery()) {
-              if (rs.next()) isCurrentFocus = rs.getInt(1) == 1;
-            }
-          } catch (SQLException ex) {
-            ex.printStackTrace();
-          }
-        }
-
         final String fCurName = curName;
         final String fCurType = curType;
-        final int fCurFreq = curFreq;
+        final String fCurSchedule = curSchedule;
         final String fCurMajName = curMajName == null ? "" : curMajName;
         final String fCurMinName = curMinName == null ? "" : curMinName;
         final boolean fIsCurrentFocus = isCurrentFocus;
@@ -1968,22 +1827,30 @@ public class Main {
             grindRadio.setSelected(true);
           }
           
-          freqField.setText(String.valueOf(fCurFreq));
+          freqField.setText(fCurSchedule);
           majCombo.setValue(fCurMajName);
           minCombo.setValue(fCurMinName);
           focusToggle.setSelected(fIsCurrentFocus);
         });
-      }).start();
+      });
 
       // Event handlers
       cancelBtn.setOnAction(ev -> d.close());
       
       saveBtn.setOnAction(ev -> {
         saveBtn.setDisable(true);
-        new Thread(() -> {
+        // read the form here; controls belong to the FX thread
+        final String formName = nameField.getText().trim();
+        final String formType = typeGroup.getSelectedToggle() != null ? 
+          (String) typeGroup.getSelectedToggle().getUserData() : "quick";
+        final String freqIn = freqField.getText().trim();
+        final String majIn = majCombo.getValue() != null ? majCombo.getValue().trim() : majCombo.getEditor().getText().trim();
+        final String minIn = minCombo.getValue() != null ? minCombo.getValue().trim() : minCombo.getEditor().getText().trim();
+        final boolean setFocus = focusToggle.isSelected();
+        jobs.run(() -> {
           try {
             // resolve target id first
-            int tid = getTaskIdByName(taskName);
+            int tid = db.read(c -> getTaskIdByName(c, taskName));
             if (tid < 0) {
               Platform.runLater(() -> {
                 saveBtn.setDisable(false);
@@ -1992,39 +1859,30 @@ public class Main {
               return;
             }
 
-            String nameIn = nameField.getText().trim();
-            String typeIn = typeGroup.getSelectedToggle() != null ? 
-              (String) typeGroup.getSelectedToggle().getUserData() : "quick";
-            String freqIn = freqField.getText().trim();
-            String majIn = majCombo.getValue() != null ? majCombo.getValue().trim() : majCombo.getEditor().getText().trim();
-            String minIn = minCombo.getValue() != null ? minCombo.getValue().trim() : minCombo.getEditor().getText().trim();
-            final boolean setFocus = focusToggle.isSelected();
+            String nameIn = formName;
+            String typeIn = formType;
 
             // fetch current (for ENTER/empty = keep current behavior)
             String curName = null, curType = null;
-            int curFreq = 0, curMaj = -1, curMin = -1;
-            try (PreparedStatement ps = conn.prepareStatement(
-                   "SELECT name, type, frequency, major_elem, minor_elem FROM tasks WHERE id = ?")) {
-              ps.setInt(1, tid);
-              try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                  curName = rs.getString(1);
-                  curType = rs.getString(2);
-                  curFreq = rs.getInt(3);
-                  curMaj = rs.getInt(4);
-                  curMin = rs.getInt(5);
-                }
-              }
+            Recurrence curSchedule = Recurrence.every(0);
+            int curMaj = -1, curMin = -1;
+            TaskFields cur = db.read(c -> fetchTaskFields(c, tid));
+            if (cur != null) {
+              curName = cur.name;
+              curType = cur.type;
+              curSchedule = cur.schedule;
+              curMaj = cur.maj;
+              curMin = cur.min;
             }
 
             if (nameIn.isEmpty()) nameIn = curName;
             if (typeIn.isEmpty()) typeIn = curType;
 
-            int freqOut = curFreq;
+            Recurrence scheduleOut = curSchedule;
             if (!freqIn.isEmpty()) {
-              try { freqOut = Integer.parseInt(freqIn); }
-              catch (NumberFormatException nfe) {
-                final String msg = "Frequency must be an integer.";
+              try { scheduleOut = Recurrence.parse(freqIn); }
+              catch (IllegalArgumentException e) {
+                final String msg = e.getMessage();
                 Platform.runLater(() -> {
                   saveBtn.setDisable(false);
                   showAlert(Alert.AlertType.ERROR, d, "Invalid frequency", msg);
@@ -2035,7 +1893,7 @@ public class Main {
 
             int majIdOut = curMaj;
             if (!majIn.isEmpty()) {
-              int mid = getElementIdByName(majIn);
+              int mid = db.read(c -> getElementIdByName(c, majIn));
               if (mid < 0) {
                 Platform.runLater(() -> {
                   saveBtn.setDisable(false);
@@ -2048,7 +1906,7 @@ public class Main {
 
             int minIdOut = curMin;
             if (!minIn.isEmpty()) {
-              int mnid = getElementIdByName(minIn);
+              int mnid = db.read(c -> getElementIdByName(c, minIn));
               if (mnid < 0) {
                 Platform.runLater(() -> {
                   saveBtn.setDisable(false);
@@ -2059,41 +1917,18 @@ public class Main {
               minIdOut = mnid;
             }
 
-            try (PreparedStatement up = conn.prepareStatement(
-                   "UPDATE tasks SET name = ?, type = ?, frequency = ?, major_elem = ?, minor_elem = ? WHERE id = ?")) {
-              up.setString(1, nameIn);
-              up.setString(2, typeIn);
-              up.setInt(3, freqOut);
-              up.setInt(4, majIdOut);
-              up.setInt(5, minIdOut);
-              up.setInt(6, tid);
-              up.executeUpdate();
-            }
+            final String fName = nameIn, fType = typeIn;
+            final Recurrence fSchedule = scheduleOut;
+            final int fMaj = majIdOut, fMin = minIdOut;
+            db.runWrite(c -> {
+              updateTask(c, tid, fName, fType, fSchedule, fMaj, fMin);
 
-            // Handle focus setting if requested
-            if (setFocus) {
-              // Get domain ID for the major element
-              int domId = -1;
-              try (PreparedStatement ps = conn.prepareStatement("SELECT domain_id FROM elements WHERE id = ?")) {
-                ps.setInt(1, majIdOut);
-                try (ResultSet rs = ps.executeQuery()) { 
-                  if (rs.next()) domId = rs.getInt(1); 
-                }
+              // Handle focus setting if requested
+              if (setFocus) {
+                int domId = getElementDomainId(c, fMaj);
+                if (domId != -1) setFocusElement(c, domId, fMaj);
               }
-              
-              if (domId != -1) {
-                // Unfocus all elements in the same domain
-                try (PreparedStatement ps = conn.prepareStatement("UPDATE elements SET is_focus = 0 WHERE domain_id = ?")) {
-                  ps.setInt(1, domId); 
-                  ps.executeUpdate();
-                }
-                // Set the major element as focus
-                try (PreparedStatement ps = conn.prepareStatement("UPDATE elements SET is_focus = 1 WHERE id = ?")) {
-                  ps.setInt(1, majIdOut); 
-                  ps.executeUpdate();
-                }
-              }
-            }
+            });
 
             Platform.runLater(() -> {
               d.close();
@@ -2105,7 +1940,7 @@ public class Main {
               showAlert(Alert.AlertType.ERROR, d, "Database error", ex.getMessage());
             });
           }
-        }).start();
+        });
       });
 
       Scene sc = new Scene(mainContainer, 800, 700);
@@ -2224,14 +2059,8 @@ public class Main {
       content.getChildren().clear();
       
       // Get user's current XP and rank
-      double userXp = 0;
-      String userRank = "Rookie";
-      try {
-        userXp = getCurrentProfileXp();
-        userRank = getCurrentRank();
-      } catch (Exception e) {
-        e.printStackTrace();
-      }
+      double userXp = getCurrentProfileXp();
+      String userRank = getCurrentRank();
       
       // Only show Kabir if he belongs to the selected rank
       if (userRank.equals(selectedRank)) {
@@ -2314,37 +2143,15 @@ public class Main {
     /**
      * Get current user's profile XP
      */
-    private double getCurrentProfileXp() throws SQLException {
-      List<Double> domainXps = new ArrayList<>();
-      try (PreparedStatement ps = conn.prepareStatement("SELECT id FROM domains ORDER BY id")) {
-        try (ResultSet rs = ps.executeQuery()) {
-          while (rs.next()) {
-            int domainId = rs.getInt(1);
-            try (PreparedStatement s2 = conn.prepareStatement("SELECT COALESCE(SUM(xp),0) FROM elements WHERE domain_id = ?")) {
-              s2.setInt(1, domainId);
-              try (ResultSet r2 = s2.executeQuery()) {
-                if (r2.next()) domainXps.add(r2.getDouble(1));
-              }
-            }
-          }
-        }
-      }
-      
-      double prod = 1.0;
-      for (double x : domainXps) prod *= x;
-      return Math.pow(prod, 1.0 / 4.0);
+    private double getCurrentProfileXp() {
+      return snapshots.current().profileXp();
     }
     
     /**
      * Get current user's rank
      */
-    private String getCurrentRank() throws SQLException {
-      double profileXp = getCurrentProfileXp();
-      double lvlF = Math.sqrt(profileXp / 109500.0) * 8.0;
-      int lvl = Math.min(8, Math.max(0, (int)lvlF));
-      
-      String[] rankNames = {"Rookie", "Explorer", "Crafter", "Strategist", "Expert", "Architect", "Elite", "Master", "Legend"};
-      return rankNames[lvl];
+    private String getCurrentRank() {
+      return snapshots.current().rankName();
     }
 
     // -------- NEW: Rickroll GIF display --------
@@ -2419,6 +2226,18 @@ public class Main {
       return a.getResult() == ButtonType.YES;
     }
 
+    // The one place background failures end up (UiTasks' error handler)
+    private void showError(Throwable t) {
+      t.printStackTrace();
+      Throwable cause = t instanceof java.util.concurrent.CompletionException && t.getCause() != null ? t.getCause() : t;
+      showAlert(Alert.AlertType.ERROR, mainStage, "Something went wrong", String.valueOf(cause.getMessage()));
+    }
+
+    @Override
+    public void stop() {
+      if (ui != null) ui.close();
+    }
+
     private void showAlert(Alert.AlertType t, Window owner, String title, String message) {
       Alert a = new Alert(t, message, ButtonType.OK);
       a.initOwner(owner);
@@ -2431,7 +2250,7 @@ public class Main {
      * Profile GUI — delegates to ProfilePage
      */
     private void showProfileGui(Window owner) {
-      ProfilePage.showProfileGui(owner, conn);
+      ProfilePage.showProfileGui(owner, db, snapshots.current(), achievements, ui);
     }
 
     /**
@@ -2442,6 +2261,7 @@ public class Main {
       d.initOwner(owner);
       d.initModality(Modality.APPLICATION_MODAL);
       d.setTitle("All Tasks");
+      allTasksJobs = ui.scope(d);
 
       BorderPane root = new BorderPane();
       root.setPadding(new Insets(12));
@@ -2526,192 +2346,202 @@ public class Main {
      * Refresh the tasks list with optional search filtering
      */
     private void refreshAllTasksList(VBox tasksList, TextField searchField) {
-      tasksList.getChildren().clear();
       String searchTerm = searchField.getText().toLowerCase().trim();
-      
-      try (PreparedStatement ps = conn.prepareStatement(
-        "SELECT id, name, type, frequency, last_done, streak, active FROM tasks ORDER BY id");
-           ResultSet rs = ps.executeQuery()) {
-        
-        while (rs.next()) {
-          int id = rs.getInt(1);
-          String name = rs.getString(2);
-          String type = rs.getString(3);
-          int freq = rs.getInt(4);
-          String lastDone = rs.getString(5);
-          int streak = rs.getInt(6);
-          int active = rs.getInt(7);
-
-          // Filter by search term
-          if (!searchTerm.isEmpty() && !name.toLowerCase().contains(searchTerm) && 
-              !type.toLowerCase().contains(searchTerm)) {
-            continue;
-          }
+      long load = ++allTasksLoads;
+      allTasksJobs.load(() -> TaskViews.all(db, searchTerm), rows -> {
+        if (load == allTasksLoads) showAllTasks(tasksList, searchField, searchTerm, rows);
+      });
+    }
 
-          HBox taskRow = new HBox(12);
-          taskRow.getStyleClass().add("task-row");
-          taskRow.setAlignment(Pos.CENTER_LEFT);
-          taskRow.setPadding(new Insets(8));
-
-          // Task name
-          Label nameLabel = new Label(name);
-          nameLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
-          nameLabel.setMinWidth(150);
-
-          // Type badge
-          Label typeBadge = new Label(type.toUpperCase());
-          typeBadge.getStyleClass().addAll("type-badge", "type-" + type);
-          typeBadge.setMinWidth(80);
-
-          // Frequency
-          Label freqLabel = new Label("Freq: " + (freq == 0 ? "One-time" : freq + " days"));
-          freqLabel.setStyle("-fx-text-fill: #bfc9d3; -fx-font-size: 12px;");
-          freqLabel.setMinWidth(100);
-
-          // Last done
-          String lastDoneText = lastDone == null ? "Never" : lastDone;
-          Label lastDoneLabel = new Label("Last: " + lastDoneText);
-          lastDoneLabel.setStyle("-fx-text-fill: #bfc9d3; -fx-font-size: 12px;");
-          lastDoneLabel.setMinWidth(120);
-
-          // Streak
-          Label streakLabel = new Label(streak > 0 ? "🔥 " + streak : "—");
-          streakLabel.getStyleClass().add("streak-badge");
-          streakLabel.setMinWidth(60);
-
-          // Status
-          Label statusLabel = new Label(active == 1 ? "ENABLED" : "DISABLED");
-          statusLabel.setStyle(active == 1 ? 
-            "-fx-text-fill: #2ecc71; -fx-font-weight: bold;" : 
-            "-fx-text-fill: #e74c3c; -fx-font-weight: bold;");
-          statusLabel.setMinWidth(80);
-
-          // Action buttons
-          Button editBtn = new Button("Edit");
-          editBtn.getStyleClass().addAll("btn","btn-secondary");
-          editBtn.setPrefWidth(60);
-          editBtn.setOnAction(ev -> {
-            editBtn.setDisable(true);
-            showEditTaskDialog(editBtn.getScene().getWindow(), name);
-            refreshAllTasksList(tasksList, searchField); // refresh after editing
-            editBtn.setDisable(false);
-          });
+    private void showAllTasks(VBox tasksList, TextField searchField, String searchTerm, List<TaskViews.TaskRow> rows) {
+      tasksList.getChildren().clear();
+      for (TaskViews.TaskRow r : rows) {
+        int id = r.id;
+        String name = r.name;
+        String type = r.type;
+        Recurrence schedule = r.schedule;
+        boolean oneTime = schedule.isInterval() && schedule.days == 0;
+        String lastDone = r.lastDone;
+        int streak = r.streak;
+        int active = r.active ? 1 : 0;
+
+        HBox taskRow = new HBox(12);
+        taskRow.getStyleClass().add("task-row");
+        taskRow.setAlignment(Pos.CENTER_LEFT);
+        taskRow.setPadding(new Insets(8));
+
+        // Task name
+        Label nameLabel = new Label(name);
+        nameLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
+        nameLabel.setMinWidth(150);
+
+        // Type badge
+        Label typeBadge = new Label(type.toUpperCase());
+        typeBadge.getStyleClass().addAll("type-badge", "type-" + type);
+        typeBadge.setMinWidth(80);
+
+        // Frequency
+        Label freqLabel = new Label("Freq: " + (oneTime ? "One-time" : schedule.isInterval() ? schedule.days + " days" : schedule.toString()));
+        freqLabel.setStyle("-fx-text-fill: #bfc9d3; -fx-font-size: 12px;");
+        freqLabel.setMinWidth(100);
+
+        // Last done
+        String lastDoneText = lastDone == null ? "Never" : lastDone;
+        Label lastDoneLabel = new Label("Last: " + lastDoneText);
+        lastDoneLabel.setStyle("-fx-text-fill: #bfc9d3; -fx-font-size: 12px;");
+        lastDoneLabel.setMinWidth(120);
+
+        // Streak
+        Label streakLabel = new Label(streak > 0 ? "🔥 " + streak : "—");
+        streakLabel.getStyleClass().add("streak-badge");
+        streakLabel.setMinWidth(60);
+
+        // Status
+        Label statusLabel = new Label(active == 1 ? "ENABLED" : "DISABLED");
+        statusLabel.setStyle(active == 1 ? 
+          "-fx-text-fill: #2ecc71; -fx-font-weight: bold;" : 
+          "-fx-text-fill: #e74c3c; -fx-font-weight: bold;");
+        statusLabel.setMinWidth(80);
+
+        // Action buttons
+        Button editBtn = new Button("Edit");
+        editBtn.getStyleClass().addAll("btn","btn-secondary");
+        editBtn.setPrefWidth(60);
+        editBtn.setOnAction(ev -> {
+          editBtn.setDisable(true);
+          showEditTaskDialog(editBtn.getScene().getWindow(), name);
+          refreshAllTasksList(tasksList, searchField); // refresh after editing
+          editBtn.setDisable(false);
+        });
 
-          Button deleteBtn = new Button("Delete");
-          deleteBtn.getStyleClass().addAll("btn","btn-danger");
-          deleteBtn.setPrefWidth(70);
-          deleteBtn.setOnAction(ev -> {
-            if (confirmDelete(deleteBtn.getScene().getWindow(), name)) {
-              deleteBtn.setDisable(true);
-              new Thread(() -> {
-                try {
-                  deleteTask(name);
-                } catch (Exception ex) {
-                  ex.printStackTrace();
-                }
+        Button deleteBtn = new Button("Delete");
+        deleteBtn.getStyleClass().addAll("btn","btn-danger");
+        deleteBtn.setPrefWidth(70);
+        deleteBtn.setOnAction(ev -> {
+          if (confirmDelete(deleteBtn.getScene().getWindow(), name)) {
+            deleteBtn.setDisable(true);
+            allTasksJobs.run(() -> {
+              try {
+                deleteTaskByName(name);
+              } finally {
                 Platform.runLater(() -> {
                   refreshAllTasksList(tasksList, searchField);
                   deleteBtn.setDisable(false);
                 });
-              }).start();
-            }
-          });
-
-          // Toggle active/inactive button
-          Button toggleBtn = new Button(active == 1 ? "Disable" : "Enable");
-          toggleBtn.getStyleClass().addAll("btn", active == 1 ? "btn-warning" : "btn-success");
-          toggleBtn.setPrefWidth(70);
-          toggleBtn.setOnAction(ev -> {
-            toggleBtn.setDisable(true);
-            new Thread(() -> {
-              try {
-                if (active == 1) {
-                  disableTask(name);
-                } else {
-                  enableTask(name);
-                }
-              } catch (Exception ex) {
-                ex.printStackTrace();
               }
+            });
+          }
+        });
+
+        // Toggle active/inactive button
+        Button toggleBtn = new Button(active == 1 ? "Disable" : "Enable");
+        toggleBtn.getStyleClass().addAll("btn", active == 1 ? "btn-warning" : "btn-success");
+        toggleBtn.setPrefWidth(70);
+        toggleBtn.setOnAction(ev -> {
+          toggleBtn.setDisable(true);
+          allTasksJobs.run(() -> {
+            try {
+              setTaskActive(name, active != 1);
+            } finally {
               Platform.runLater(() -> {
                 refreshAllTasksList(tasksList, searchField);
                 toggleBtn.setDisable(false);
               });
-            }).start();
+            }
           });
+        });
 
-          // Do Today button
-          Button doTodayBtn = new Button("Add");
-          doTodayBtn.getStyleClass().addAll("btn", "btn-primary");
-          doTodayBtn.setPrefWidth(80);
-          doTodayBtn.setOnAction(ev -> {
-            doTodayBtn.setDisable(true);
-            new Thread(() -> {
-              try {
-                // For recurring tasks, set last_done to a date that makes it due today
-                // For one-time tasks, set last_done to null so they appear
-                if (freq == 0) {
-                  // One-time task: set last_done to null so it appears in today's list
-                  try (PreparedStatement updatePs = conn.prepareStatement("UPDATE tasks SET last_done = NULL WHERE id = ?")) {
-                    updatePs.setInt(1, id);
-                    updatePs.executeUpdate();
-                  }
-                } else {
-                  // Recurring task: set last_done to (today - frequency) so next due is today
-                  try (PreparedStatement updatePs = conn.prepareStatement("UPDATE tasks SET last_done = date('now','localtime','-" + freq + " days') WHERE id = ?")) {
-                    updatePs.setInt(1, id);
-                    updatePs.executeUpdate();
-                  }
-                }
-              } catch (Exception ex) {
-                ex.printStackTrace();
-              }
-              Platform.runLater(() -> {
-                refreshAllTasksList(tasksList, searchField);
-                refreshTasks(); // Also refresh the main today's tasks list
-                doTodayBtn.setDisable(false);
-              });
-            }).start();
+        // Do Today button
+        Button doTodayBtn = new Button("Add");
+        doTodayBtn.getStyleClass().addAll("btn", "btn-primary");
+        doTodayBtn.setPrefWidth(80);
+        doTodayBtn.setOnAction(ev -> {
+          doTodayBtn.setDisable(true);
+          // Only next_due moves: last_done changes with a logged completion, never on its own.
+          // Recurring tasks come due today; one-time tasks get 0, due but never overdue.
+          db.submitAction(wc -> {
+            PreparedStatement updatePs = db.prepare(wc, "UPDATE tasks SET next_due = ? WHERE id = ?");
+            updatePs.setLong(1, oneTime ? 0 : LocalDate.now().toEpochDay());
+            updatePs.setInt(2, id);
+            updatePs.executeUpdate();
+            dueSchedule.refresh(id);
+          }).whenComplete((v, ex) -> {
+            if (ex != null) ui.report(ex);
+            Platform.runLater(() -> {
+              refreshAllTasksList(tasksList, searchField);
+              refreshTasks(); // Also refresh the main today's tasks list
+              doTodayBtn.setDisable(false);
+            });
           });
+        });
 
-          taskRow.getChildren().addAll(nameLabel, typeBadge, freqLabel, lastDoneLabel, 
-                                     streakLabel, statusLabel, editBtn, deleteBtn, toggleBtn, doTodayBtn);
-          tasksList.getChildren().add(taskRow);
-        }
-        
-        if (tasksList.getChildren().isEmpty()) {
-          Label noTasksLabel = new Label(searchTerm.isEmpty() ? "No tasks found." : "No tasks match your search.");
-          noTasksLabel.setStyle("-fx-text-fill: #bfc9d3; -fx-font-size: 14px;");
-          noTasksLabel.setPadding(new Insets(20));
-          tasksList.getChildren().add(noTasksLabel);
-        }
+        taskRow.getChildren().addAll(nameLabel, typeBadge, freqLabel, lastDoneLabel, 
+                                   streakLabel, statusLabel, editBtn, deleteBtn, toggleBtn, doTodayBtn);
+        tasksList.getChildren().add(taskRow);
+      }
         
-      } catch (SQLException ex) {
-        ex.printStackTrace();
-        Label errorLabel = new Label("Failed to load tasks. See console for error.");
-        errorLabel.setStyle("-fx-text-fill: #e74c3c;");
-        tasksList.getChildren().add(errorLabel);
+      if (tasksList.getChildren().isEmpty()) {
+        Label noTasksLabel = new Label(searchTerm.isEmpty() ? "No tasks found." : "No tasks match your search.");
+        noTasksLabel.setStyle("-fx-text-fill: #bfc9d3; -fx-font-size: 14px;");
+        noTasksLabel.setPadding(new Insets(20));
+        tasksList.getChildren().add(noTasksLabel);
       }
     }
 
   } // end GuiApp
 
   // -------------------- main --------------------------------------------
+  /**
+   * Database file: --db=<path> argument, then the xlog.db system property, then
+   * the XLOG_DB environment variable, then ~/xLog/xLog.db.
+   */
+  private static Path resolveDbPath(String[] args) {
+    for (String a : args) {
+      if (a.startsWith("--db=")) return Paths.get(a.substring("--db=".length()));
+    }
+    String p = System.getProperty("xlog.db");
+    if (p == null || p.isEmpty()) p = System.getenv("XLOG_DB");
+    if (p != null && !p.isEmpty()) return Paths.get(p);
+    return Paths.get(System.getProperty("user.home"), "xLog", "xLog.db");
+  }
+
   public static void main(String[] args) {
     try {
-      String home = System.getProperty("user.home");
-      Path dbPath = Paths.get(home, "xLog", "xLog.db");
+      Path dbPath = resolveDbPath(args);
       ensureDbDir(dbPath);
-      String url = "jdbc:sqlite:" + dbPath.toString();
-      conn = DriverManager.getConnection(url);
-      initDB();
-
-      if (getInt("SELECT COUNT(*) FROM domains") == 0) promptInitialSetup();
-      
-      // Check for overdue tasks and apply penalties on startup
-      checkAndApplyOverduePenalties();
-      
-      logTodayXp();
+      db = Database.open(dbPath, READ_CONNECTIONS);
+      Migrations.migrate(db);
+      snapshots = new ProfileSnapshotService(db);
+      dueSchedule = new DueSchedule(db);
+      progress = new ProgressService(new SqliteTaskRepository(db, dueSchedule), new SqliteProfileRepository(db, snapshots));
+      events = new EventBus();
+      progress.setEventSink(e -> db.afterCommit(() -> events.publish(e)));
+      snapshots.setEventSink(events::publish);
+
+      if (db.read(c -> getInt(c, "SELECT COUNT(*) FROM domains")) == 0) promptInitialSetup();
+
+      // After setup, so the snapshot, the formulas and the schedule see its rows
+      snapshots.reload();
+      dueSchedule.reload();
+      xpRules = new XpRuleStore(db);
+      progress.setRules(xpRules.load());
+      applyXpArgs(args);
+      // A day is all done once nothing on or before it can become overdue
+      achievements = new AchievementEngine(db, day -> dueSchedule.overdueCount(day + 1) == 0);
+      achievements.load();
+      achievements.attach(events);
+      
+      // Daily log and overdue penalties, once per startup
+      long today = LocalDate.now().toEpochDay();
+      ProgressService.PenaltySummary penalties = logTodayXp(today);
+      if (penalties.taskCount() > 0 || penalties.daysReplayed() > 0) System.out.println(penalties);
+
+      // ...and again whenever the date changes while the app is open
+      rollover = new DayRolloverScheduler(today, day -> {
+        ProgressService.PenaltySummary p = logTodayXp(day);
+        if (p.taskCount() > 0 || p.daysReplayed() > 0) System.out.println(p);
+      });
+      rollover.start();
 
       /*
        * Launch JavaFX GUI for Home page.
@@ -2722,7 +2552,14 @@ public class Main {
 
     } catch (Exception e) {
       e.printStackTrace();
-      if (conn != null) try { conn.close(); } catch (Exception ignore) {}
+    } finally {
+      if (rollover != null) rollover.close();
+      if (events != null) events.close();
+      if (db != null) {
+        // Hit/miss counters for checking that hot paths reuse their statements
+        if (Arrays.asList(args).contains("--stats")) System.out.println("SQL statement cache: " + db.statementStats());
+        db.close();
+      }
     }
   }
 }
@@ -0,0 +1,548 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Versioned schema for the xLog database.
+ * Each migration runs once, in its own transaction, and records its version in
+ * schema_version. When the schema is current, startup costs a single query.
+ * Append new migrations at the end of MIGRATIONS; never edit a released one.
+ */
+public class Migrations {
+
+    private static class Migration {
+        final int version;
+        final String description;
+        final Database.SqlAction step;
+
+        Migration(int version, String description, Database.SqlAction step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    // Rows touched per statement when a migration backfills a table
+    private static final int BACKFILL_BATCH = 500;
+
+    // Epoch day a task is next due: 0 if never done, NULL if done and not recurring
+    private static final String NEXT_DUE_EXPR =
+        "CASE WHEN last_done IS NULL THEN 0 " +
+        " WHEN frequency > 0 THEN CAST(julianday(last_done) - 2440587.5 AS INTEGER) + frequency " +
+        " ELSE NULL END";
+
+    // Profile XP: geometric mean of the first four domain totals, 0 while any of them is not positive
+    private static final String PROFILE_XP_EXPR =
+        "(SELECT CASE WHEN COUNT(*) = 0 OR MIN(xp) <= 0 THEN 0 ELSE exp(SUM(ln(xp)) / 4.0) END " +
+        " FROM (SELECT xp FROM domain_totals ORDER BY domain_id LIMIT 4))";
+
+    // A domain's term in profile_totals.log_sum; see ProfileXp
+    private static String logTerm(String xp) {
+        return "ln(1 + max(" + xp + ", 0))";
+    }
+
+    // Profile XP from a log sum over count domains; see ProfileXp
+    private static String profileFromLogSum(String sum, String count) {
+        return "CASE WHEN " + count + " = 0 THEN 0 ELSE exp((" + sum + ") / (" + count + ")) - 1 END";
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "base schema", Migrations::baseSchema),
+        new Migration(2, "tasks.last_penalty_date", c ->
+            addColumnIfMissing(c, "tasks", "last_penalty_date", "TEXT")),
+        new Migration(3, "task_completions log", Migrations::taskCompletions),
+        new Migration(4, "domain and profile XP totals", Migrations::xpTotals),
+        new Migration(5, "tasks.next_due", Migrations::nextDue),
+        new Migration(6, "xp_rules", Migrations::xpRules),
+        new Migration(7, "xp_formulas", Migrations::xpFormulas),
+        new Migration(8, "log-space profile XP and xp_log_domain", Migrations::logSpaceProfile),
+        new Migration(9, "achievements", Migrations::achievements),
+        new Migration(10, "tasks.history completion bitsets", Migrations::taskHistory),
+        new Migration(11, "tasks.recurrence", Migrations::taskRecurrence)
+    );
+
+    /**
+     * Bring the database up to the latest schema version.
+     */
+    public static void migrate(Database db) throws SQLException {
+        int current = db.read(Migrations::currentVersion);
+        for (Migration m : MIGRATIONS) {
+            if (m.version <= current) continue;
+            db.runWrite(c -> {
+                try (Statement st = c.createStatement()) {
+                    st.execute(
+                        "CREATE TABLE IF NOT EXISTS schema_version (" +
+                        " version INTEGER PRIMARY KEY," +
+                        " description TEXT NOT NULL," +
+                        " applied_at INTEGER NOT NULL" +
+                        ");"
+                    );
+                }
+                m.step.run(c);
+                try (PreparedStatement ps = c.prepareStatement(
+                        "INSERT INTO schema_version(version, description, applied_at) VALUES(?,?,?)")) {
+                    ps.setInt(1, m.version);
+                    ps.setString(2, m.description);
+                    ps.setLong(3, System.currentTimeMillis());
+                    ps.executeUpdate();
+                }
+            });
+            System.out.println("Applied schema migration " + m.version + ": " + m.description);
+        }
+    }
+
+    /**
+     * Highest applied version, 0 for a new or pre-versioning database.
+     */
+    public static int currentVersion(Connection c) throws SQLException {
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(
+                 "SELECT name FROM sqlite_master WHERE type = 'table' AND name = 'schema_version'")) {
+            if (!rs.next()) return 0;
+        }
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // -------------------- migrations --------------------------------------------
+
+    private static void baseSchema(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS user (" +
+                " id INTEGER PRIMARY KEY CHECK(id=1)," +
+                " name TEXT NOT NULL," +
+                " created_at TEXT NOT NULL" +
+                ");"
+            );
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS domains (" +
+                " id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                " name TEXT NOT NULL UNIQUE" +
+                ");"
+            );
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS elements (" +
+                " id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                " domain_id INTEGER NOT NULL REFERENCES domains(id) ON DELETE CASCADE," +
+                " name TEXT NOT NULL," +
+                " is_focus INTEGER NOT NULL DEFAULT 0," +
+                " xp INTEGER NOT NULL DEFAULT 0," +
+                " UNIQUE(domain_id, name)" +
+                ");"
+            );
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS tasks (" +
+                " id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                " name TEXT NOT NULL UNIQUE," +
+                " type TEXT NOT NULL," +
+                " frequency INTEGER NOT NULL," +
+                " major_elem INTEGER NOT NULL REFERENCES elements(id)," +
+                " minor_elem INTEGER NOT NULL REFERENCES elements(id)," +
+                " last_done TEXT," +
+                " streak INTEGER NOT NULL DEFAULT 0," +
+                " active INTEGER NOT NULL DEFAULT 1" +
+                ");"
+            );
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS xp_log (" +
+                " id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                " date TEXT NOT NULL UNIQUE," +
+                " profile_xp REAL NOT NULL," +
+                " domain1_xp REAL NOT NULL," +
+                " domain2_xp REAL NOT NULL," +
+                " domain3_xp REAL NOT NULL," +
+                " domain4_xp REAL NOT NULL" +
+                ");"
+            );
+        }
+    }
+
+    /**
+     * Append-only completion history; day is the local epoch day, done_at is epoch
+     * millis. From here on tasks.last_done only changes together with a new entry.
+     */
+    private static void taskCompletions(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS task_completions (" +
+                " id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                " task_id INTEGER NOT NULL REFERENCES tasks(id) ON DELETE CASCADE," +
+                " day INTEGER NOT NULL," +
+                " done_at INTEGER NOT NULL," +
+                " major_xp INTEGER NOT NULL," +
+                " minor_xp INTEGER NOT NULL" +
+                ");"
+            );
+            st.execute("CREATE INDEX IF NOT EXISTS idx_completions_day_task ON task_completions(day, task_id);");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_completions_task_day ON task_completions(task_id, day);");
+        }
+
+        // A task done before the log existed gets one entry for its last_done day; the
+        // XP it earned then was never recorded, so the entry carries 0
+        backfill(c, "tasks",
+            "INSERT INTO task_completions(task_id, day, done_at, major_xp, minor_xp) " +
+            "SELECT id, CAST(julianday(last_done) - 2440587.5 AS INTEGER), " +
+            " CAST((julianday(last_done) - 2440587.5) * 86400000 AS INTEGER), 0, 0 " +
+            "FROM tasks WHERE julianday(last_done) IS NOT NULL AND id > ? AND id <= ?");
+    }
+
+    /**
+     * Materialized XP totals: domain_totals holds SUM(elements.xp) per domain and
+     * profile_totals the profile XP derived from it. Triggers on elements keep both
+     * current, so readers do one indexed lookup instead of summing every element.
+     */
+    private static void xpTotals(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS domain_totals (" +
+                " domain_id INTEGER PRIMARY KEY REFERENCES domains(id) ON DELETE CASCADE," +
+                " xp INTEGER NOT NULL DEFAULT 0" +
+                ");"
+            );
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS profile_totals (" +
+                " id INTEGER PRIMARY KEY CHECK(id=1)," +
+                " profile_xp REAL NOT NULL DEFAULT 0" +
+                ");"
+            );
+            st.execute(
+                "CREATE TRIGGER IF NOT EXISTS trg_domains_totals_ins AFTER INSERT ON domains BEGIN " +
+                " INSERT OR IGNORE INTO domain_totals(domain_id, xp) VALUES (NEW.id, 0); " +
+                "END;"
+            );
+            st.execute(
+                "CREATE TRIGGER IF NOT EXISTS trg_elements_totals_ins AFTER INSERT ON elements BEGIN " +
+                " UPDATE domain_totals SET xp = xp + NEW.xp WHERE domain_id = NEW.domain_id; " +
+                "END;"
+            );
+            st.execute(
+                "CREATE TRIGGER IF NOT EXISTS trg_elements_totals_upd AFTER UPDATE OF xp, domain_id ON elements BEGIN " +
+                " UPDATE domain_totals SET xp = xp - OLD.xp WHERE domain_id = OLD.domain_id; " +
+                " UPDATE domain_totals SET xp = xp + NEW.xp WHERE domain_id = NEW.domain_id; " +
+                "END;"
+            );
+            st.execute(
+                "CREATE TRIGGER IF NOT EXISTS trg_elements_totals_del AFTER DELETE ON elements BEGIN " +
+                " UPDATE domain_totals SET xp = xp - OLD.xp WHERE domain_id = OLD.domain_id; " +
+                "END;"
+            );
+            for (String ev : new String[]{"INSERT", "UPDATE OF xp", "DELETE"}) {
+                st.execute(
+                    "CREATE TRIGGER IF NOT EXISTS trg_profile_totals_" + ev.split(" ")[0].toLowerCase() +
+                    " AFTER " + ev + " ON domain_totals BEGIN " +
+                    " UPDATE profile_totals SET profile_xp = " + PROFILE_XP_EXPR + " WHERE id = 1; " +
+                    "END;"
+                );
+            }
+        }
+
+        backfill(c, "domains",
+            "INSERT OR IGNORE INTO domain_totals(domain_id, xp) " +
+            "SELECT d.id, (SELECT COALESCE(SUM(e.xp),0) FROM elements e WHERE e.domain_id = d.id) " +
+            "FROM domains d WHERE d.id > ? AND d.id <= ?");
+        try (Statement st = c.createStatement()) {
+            st.execute("INSERT OR IGNORE INTO profile_totals(id, profile_xp) VALUES (1, 0);");
+            st.execute("UPDATE profile_totals SET profile_xp = " + PROFILE_XP_EXPR + " WHERE id = 1;");
+        }
+    }
+
+    /**
+     * tasks.next_due mirrors last_done + frequency as a local epoch day so the
+     * agenda and overdue queries are range scans on (active, next_due). Triggers
+     * recompute it whenever a task is added or its last_done/frequency changes.
+     */
+    private static void nextDue(Connection c) throws SQLException {
+        addColumnIfMissing(c, "tasks", "next_due", "INTEGER");
+        backfill(c, "tasks", "UPDATE tasks SET next_due = " + NEXT_DUE_EXPR + " WHERE id > ? AND id <= ?");
+        try (Statement st = c.createStatement()) {
+            st.execute("CREATE INDEX IF NOT EXISTS idx_tasks_active_next_due ON tasks(active, next_due);");
+            st.execute(
+                "CREATE TRIGGER IF NOT EXISTS trg_tasks_next_due_ins AFTER INSERT ON tasks BEGIN " +
+                " UPDATE tasks SET next_due = " + NEXT_DUE_EXPR + " WHERE id = NEW.id; " +
+                "END;"
+            );
+            st.execute(
+                "CREATE TRIGGER IF NOT EXISTS trg_tasks_next_due_upd AFTER UPDATE OF last_done, frequency ON tasks BEGIN " +
+                " UPDATE tasks SET next_due = " + NEXT_DUE_EXPR + " WHERE id = NEW.id; " +
+                "END;"
+            );
+        }
+    }
+
+    /**
+     * XP parameters per task type, optionally per domain (domain_id NULL = every
+     * domain), seeded with the values that used to be hard-coded.
+     */
+    private static void xpRules(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS xp_rules (" +
+                " id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                " task_type TEXT NOT NULL," +
+                " domain_id INTEGER REFERENCES domains(id) ON DELETE CASCADE," +
+                " base_major INTEGER NOT NULL," +
+                " base_minor INTEGER NOT NULL," +
+                " focus_bonus REAL NOT NULL DEFAULT 1.1," +
+                " streak_cap_pct INTEGER NOT NULL DEFAULT 20," +
+                " late_factor REAL NOT NULL DEFAULT 0.6" +
+                ");"
+            );
+            st.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_xp_rules_type_domain ON xp_rules(task_type, COALESCE(domain_id, 0));");
+            st.execute(
+                "INSERT OR IGNORE INTO xp_rules(task_type, base_major, base_minor) VALUES " +
+                " ('quick', 10, 5), ('session', 60, 30), ('grind', 125, 75);"
+            );
+        }
+    }
+
+    /** User-defined XP modifier expressions (see XpFormula); active ones multiply completion XP. */
+    private static void xpFormulas(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS xp_formulas (" +
+                " id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                " name TEXT NOT NULL UNIQUE," +
+                " expr TEXT NOT NULL," +
+                " active INTEGER NOT NULL DEFAULT 1" +
+                ");"
+            );
+        }
+    }
+
+    /**
+     * tasks.recurrence holds a Recurrence spec for schedules a day count cannot
+     * express; NULL keeps the plain frequency. For those rows next_due is written
+     * by SqliteTaskRepository, after the next_due triggers have run.
+     */
+    private static void taskRecurrence(Connection c) throws SQLException {
+        addColumnIfMissing(c, "tasks", "recurrence", "TEXT");
+    }
+
+    /**
+     * tasks.history holds each task's completion days as a CompletionHistory
+     * bitset, built here from task_completions (plus last_done, which older rows
+     * may have without a logged completion). Streaks only ever counted up before
+     * this, so they are recomputed from the history as of today.
+     */
+    private static void taskHistory(Connection c) throws SQLException {
+        addColumnIfMissing(c, "tasks", "history", "BLOB");
+        long today = LocalDate.now().toEpochDay();
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(
+                 "SELECT t.id, t.frequency, CAST(julianday(t.last_done) - 2440587.5 AS INTEGER), tc.day " +
+                 "FROM tasks t LEFT JOIN task_completions tc ON tc.task_id = t.id ORDER BY t.id");
+             PreparedStatement ps = c.prepareStatement("UPDATE tasks SET history = ?, streak = ? WHERE id = ?")) {
+            int id = -1, frequency = 0;
+            CompletionHistory h = null;
+            while (true) {
+                boolean more = rs.next();
+                if (h != null && (!more || rs.getInt(1) != id)) {
+                    ps.setBytes(1, h.toBytes());
+                    ps.setInt(2, h.currentStreak(today, frequency));
+                    ps.setInt(3, id);
+                    ps.addBatch();
+                    h = null;
+                }
+                if (!more) break;
+                if (h == null) {
+                    id = rs.getInt(1);
+                    frequency = rs.getInt(2);
+                    h = new CompletionHistory();
+                    long lastDone = rs.getLong(3);
+                    if (!rs.wasNull()) h.set(lastDone);
+                }
+                long day = rs.getLong(4);
+                if (!rs.wasNull()) h.set(day);
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * AchievementEngine state: one row of counters and day bitsets, and the unlock
+     * time of each achievement. The state row is filled by replaying
+     * task_completions the first time the engine loads.
+     */
+    private static void achievements(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS achievement_state (" +
+                " id INTEGER PRIMARY KEY CHECK(id=1)," +
+                " completions INTEGER NOT NULL," +
+                " run_days INTEGER NOT NULL," +
+                " run_end INTEGER NOT NULL," +
+                " bits_day INTEGER NOT NULL," +
+                " active_bits INTEGER NOT NULL," +
+                " perfect_bits INTEGER NOT NULL," +
+                " penalized_day INTEGER NOT NULL" +
+                ");"
+            );
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS achievements (" +
+                " code TEXT PRIMARY KEY," +
+                " unlocked_at INTEGER NOT NULL," +
+                " day INTEGER NOT NULL" +
+                ");"
+            );
+        }
+    }
+
+    /**
+     * Profile XP becomes a running log sum over every domain (see ProfileXp): the
+     * triggers on domain_totals adjust log_sum by one term per change instead of
+     * re-reading the first four domains. The daily log's four fixed domain columns
+     * move into xp_log_domain, one row per logged domain, and the logged profile XP
+     * is recomputed from them with the new formula. The one-off sums are done in
+     * Java; the triggers' ln and exp fall back to Java where SQLite lacks them
+     * (see Database).
+     */
+    private static void logSpaceProfile(Connection c) throws SQLException {
+        addColumnIfMissing(c, "profile_totals", "log_sum", "REAL NOT NULL DEFAULT 0");
+        addColumnIfMissing(c, "profile_totals", "domain_count", "INTEGER NOT NULL DEFAULT 0");
+        try (Statement st = c.createStatement()) {
+            for (String ev : new String[]{"insert", "update", "delete"}) {
+                st.execute("DROP TRIGGER IF EXISTS trg_profile_totals_" + ev + ";");
+            }
+            st.execute(
+                "CREATE TRIGGER IF NOT EXISTS trg_profile_log_ins AFTER INSERT ON domain_totals BEGIN " +
+                " UPDATE profile_totals SET" +
+                "  log_sum = log_sum + " + logTerm("NEW.xp") + "," +
+                "  domain_count = domain_count + 1," +
+                "  profile_xp = " + profileFromLogSum("log_sum + " + logTerm("NEW.xp"), "(domain_count + 1)") +
+                " WHERE id = 1; " +
+                "END;"
+            );
+            st.execute(
+                "CREATE TRIGGER IF NOT EXISTS trg_profile_log_upd AFTER UPDATE OF xp ON domain_totals BEGIN " +
+                " UPDATE profile_totals SET" +
+                "  log_sum = log_sum - " + logTerm("OLD.xp") + " + " + logTerm("NEW.xp") + "," +
+                "  profile_xp = " + profileFromLogSum("log_sum - " + logTerm("OLD.xp") + " + " + logTerm("NEW.xp"), "domain_count") +
+                " WHERE id = 1; " +
+                "END;"
+            );
+            st.execute(
+                "CREATE TRIGGER IF NOT EXISTS trg_profile_log_del AFTER DELETE ON domain_totals BEGIN " +
+                " UPDATE profile_totals SET" +
+                "  log_sum = log_sum - " + logTerm("OLD.xp") + "," +
+                "  domain_count = domain_count - 1," +
+                "  profile_xp = " + profileFromLogSum("log_sum - " + logTerm("OLD.xp"), "(domain_count - 1)") +
+                " WHERE id = 1; " +
+                "END;"
+            );
+
+            // Starting values in Java (ProfileXp), so they match the snapshot exactly
+            double logSum = 0;
+            int count = 0;
+            try (ResultSet rs = st.executeQuery("SELECT xp FROM domain_totals")) {
+                while (rs.next()) {
+                    logSum += ProfileXp.term(rs.getLong(1));
+                    count++;
+                }
+            }
+            try (PreparedStatement ps = c.prepareStatement(
+                    "UPDATE profile_totals SET log_sum = ?, domain_count = ?, profile_xp = ? WHERE id = 1")) {
+                ps.setDouble(1, logSum);
+                ps.setInt(2, count);
+                ps.setDouble(3, ProfileXp.fromLogSum(logSum, count));
+                ps.executeUpdate();
+            }
+
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS xp_log_domain (" +
+                " log_id INTEGER NOT NULL REFERENCES xp_log(id) ON DELETE CASCADE," +
+                " domain_id INTEGER NOT NULL REFERENCES domains(id) ON DELETE CASCADE," +
+                " xp REAL NOT NULL," +
+                " PRIMARY KEY (log_id, domain_id)" +
+                ") WITHOUT ROWID;"
+            );
+        }
+
+        // domainN_xp held the Nth domain by id
+        for (int k = 1; k <= 4; k++) {
+            String col = "domain" + k + "_xp";
+            if (!columnExists(c, "xp_log", col)) continue;
+            backfill(c, "xp_log",
+                "INSERT OR IGNORE INTO xp_log_domain(log_id, domain_id, xp) " +
+                "SELECT l.id, d.id, l." + col + " FROM xp_log l, " +
+                " (SELECT id FROM domains ORDER BY id LIMIT 1 OFFSET " + (k - 1) + ") d " +
+                "WHERE l.id > ? AND l.id <= ?");
+            try (Statement st = c.createStatement()) {
+                st.execute("ALTER TABLE xp_log DROP COLUMN " + col + ";");
+            }
+        }
+
+        // Rescale the logged profile XP to the new formula, so the chart and the
+        // rank history are on the same scale as the current profile XP
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT log_id, xp FROM xp_log_domain ORDER BY log_id");
+             PreparedStatement ps = c.prepareStatement("UPDATE xp_log SET profile_xp = ? WHERE id = ?")) {
+            long logId = -1;
+            double sum = 0;
+            int n = 0;
+            while (true) {
+                boolean more = rs.next();
+                if (n > 0 && (!more || rs.getLong(1) != logId)) {
+                    ps.setDouble(1, ProfileXp.fromLogSum(sum, n));
+                    ps.setLong(2, logId);
+                    ps.addBatch();
+                    sum = 0;
+                    n = 0;
+                }
+                if (!more) break;
+                logId = rs.getLong(1);
+                sum += ProfileXp.term(rs.getDouble(2));
+                n++;
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // -------------------- helpers --------------------------------------------
+
+    private static boolean columnExists(Connection c, String table, String column) throws SQLException {
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Databases created before versioning may already have the column, so check
+     * instead of relying on ALTER TABLE failing.
+     */
+    private static void addColumnIfMissing(Connection c, String table, String column, String decl) throws SQLException {
+        if (columnExists(c, table, column)) return;
+        try (Statement st = c.createStatement()) {
+            st.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + decl + ";");
+        }
+    }
+
+    /**
+     * Run sql (which takes an exclusive-low, inclusive-high id range) over table's
+     * id space in BACKFILL_BATCH steps, so no single statement rewrites the whole table.
+     */
+    private static void backfill(Connection c, String table, String sql) throws SQLException {
+        long maxId;
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            maxId = rs.next() ? rs.getLong(1) : 0;
+        }
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            for (long lo = 0; lo < maxId; lo += BACKFILL_BATCH) {
+                ps.setLong(1, lo);
+                ps.setLong(2, lo + BACKFILL_BATCH);
+                ps.executeUpdate();
+            }
+        }
+    }
+}
@@ -18,10 +18,6 @@ import javafx.stage.Window;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -102,46 +98,20 @@ public class ProfilePage {
     // -------------------- profile views -------------------------------------------
     
     /**
-     * Existing console profile view - preserved exactly
+     * Existing console profile view, drawn from the profile snapshot
      */
-    public static void viewProfile(Connection conn) throws SQLException {
+    public static void viewProfile(ProfileSnapshot snap) {
         clearScreen();
         String[] domainNames = {"","","",""};
         double[] domainXps = new double[4];
-        try (PreparedStatement ps = conn.prepareStatement("SELECT id,name FROM domains ORDER BY id");
-             ResultSet rs = ps.executeQuery()) {
-            int idx = 0;
-            while (rs.next() && idx < 4) {
-                int id = rs.getInt(1);
-                domainNames[idx] = rs.getString(2);
-                try (PreparedStatement s2 = conn.prepareStatement("SELECT COALESCE(SUM(xp),0) FROM elements WHERE domain_id = ?")) {
-                    s2.setInt(1, id);
-                    try (ResultSet r2 = s2.executeQuery()) { if (r2.next()) domainXps[idx] = r2.getDouble(1); }
-                }
-                idx++;
-            }
-        }
-
-        double prod = 1.0;
-        for (double x : domainXps) prod *= x;
-        double profileXp = Math.pow(prod, 1.0/4.0);
-        double lvlF = Math.sqrt(profileXp / XP_MAX) * 8.0;
-        int lvl = Math.min(8, Math.max(0, (int)lvlF));
-        double frac = (lvl < 8 ? lvlF - lvl : 1.0);
+        double profileXp = firstFourDomains(snap, domainNames, domainXps);
+        int lvl = snap.level();
+        double frac = snap.levelFraction();
         String color = COLORS[lvl];
         String rank = RANK_NAMES[lvl];
-        
 
-        String user = "";
-        int daysLeft = 0;
-        try (PreparedStatement ps = conn.prepareStatement(
-            "SELECT name, CAST(julianday(date(created_at,'+4 years'))-julianday('now','localtime') AS INTEGER) FROM user WHERE id=1");
-             ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) {
-                user = rs.getString(1);
-                daysLeft = rs.getInt(2);
-            }
-        }
+        String user = snap.userName();
+        int daysLeft = snap.daysLeft(LocalDate.now().toEpochDay());
 
         List<String> badge = buildBadge(rank, color);
         String[] info = new String[BADGE_H];
@@ -163,13 +133,14 @@ public class ProfilePage {
     
     /**
      * Profile GUI — mirrors the logic in viewProfile() but presents results in JavaFX.
-     * Does not change any core logic (same SQL and calculations).
+     * Everything but the XP history chart comes from the snapshot.
      */
-    public static void showProfileGui(Window owner, Connection conn) {
+    public static void showProfileGui(Window owner, Database db, ProfileSnapshot snap, AchievementEngine achievements, UiTasks ui) {
         Stage d = new Stage();
         d.initOwner(owner);
         d.initModality(Modality.APPLICATION_MODAL);
         d.setTitle("Profile");
+        UiTasks.Scope jobs = ui.scope(d);
 
         // containers
         BorderPane root = new BorderPane();
@@ -186,60 +157,23 @@ public class ProfilePage {
         HBox top = new HBox(12);
         top.setAlignment(Pos.CENTER_LEFT);
 
-        // fetch same data as console viewProfile
+        // same data as console viewProfile, from the snapshot
         String[] domainNames = {"","","",""};
         double[] domainXps = new double[4];
-        String user = "";
-        int daysLeft = 0;
-        double profileXp = 0.0;
-        double frac = 0.0;
-        int lvl = 0;
-        String rank = "";
-        double nextRankXp = XP_MAX;
-        double progressToNext = 0.0;
-        try {
-            try (PreparedStatement ps = conn.prepareStatement("SELECT id,name FROM domains ORDER BY id");
-                 ResultSet rs = ps.executeQuery()) {
-                int idx = 0;
-                while (rs.next() && idx < 4) {
-                    int id = rs.getInt(1);
-                    domainNames[idx] = rs.getString(2);
-                    try (PreparedStatement s2 = conn.prepareStatement("SELECT COALESCE(SUM(xp),0) FROM elements WHERE domain_id = ?")) {
-                        s2.setInt(1, id);
-                        try (ResultSet r2 = s2.executeQuery()) { if (r2.next()) domainXps[idx] = r2.getDouble(1); }
-                    }
-                    idx++;
-                }
-            }
+        double profileXp = firstFourDomains(snap, domainNames, domainXps);
+        int lvl = snap.level();
+        double frac = snap.levelFraction();
+        String rank = RANK_NAMES[lvl];
+        String user = snap.userName();
+        int daysLeft = snap.daysLeft(LocalDate.now().toEpochDay());
 
-            double prod = 1.0;
-            for (double x : domainXps) prod *= x;
-            profileXp = Math.pow(prod, 1.0/4.0);
-            double lvlF = Math.sqrt(profileXp / XP_MAX) * 8.0;
-            lvl = Math.min(8, Math.max(0, (int)lvlF));
-            frac = (lvl < 8 ? lvlF - lvl : 1.0);
-            rank = RANK_NAMES[lvl];
-            
-            // Calculate XP thresholds for current and next rank
-            double currentRankXp = (lvl == 0) ? 0 : Math.pow((lvl / 8.0), 2) * XP_MAX;
-            nextRankXp = (lvl >= 8) ? XP_MAX : Math.pow(((lvl + 1) / 8.0), 2) * XP_MAX;
-            progressToNext = (lvl >= 8) ? 1.0 : (profileXp - currentRankXp) / (nextRankXp - currentRankXp);
-            
-            // Ensure progress is between 0 and 1
-            progressToNext = Math.max(0.0, Math.min(1.0, progressToNext));
-            
+        // Calculate XP thresholds for current and next rank
+        double currentRankXp = (lvl == 0) ? 0 : Math.pow((lvl / 8.0), 2) * XP_MAX;
+        double nextRankXp = (lvl >= 8) ? XP_MAX : Math.pow(((lvl + 1) / 8.0), 2) * XP_MAX;
+        double progressToNext = (lvl >= 8) ? 1.0 : (profileXp - currentRankXp) / (nextRankXp - currentRankXp);
 
-            try (PreparedStatement ps = conn.prepareStatement(
-                "SELECT name, CAST(julianday(date(created_at,'+4 years'))-julianday('now','localtime') AS INTEGER) FROM user WHERE id=1");
-                 ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    user = rs.getString(1);
-                    daysLeft = rs.getInt(2);
-                }
-            }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
+        // Ensure progress is between 0 and 1
+        progressToNext = Math.max(0.0, Math.min(1.0, progressToNext));
 
         // Top section: User info (left) and Spider Chart (right) - equal height
         HBox topSection = new HBox(20);
@@ -318,7 +252,7 @@ public class ProfilePage {
         userInfo.getChildren().addAll(rankLabel, userLabel, xpLabel, pb, progressLabel, timeLabel);
         
         // Achievement badges section
-        VBox badgesSection = createAchievementBadges();
+        VBox badgesSection = createAchievementBadges(achievements);
         userInfo.getChildren().add(badgesSection);
         
         // Add "View All Achievements" button
@@ -331,12 +265,12 @@ public class ProfilePage {
                                       "-fx-background-radius: 6px; " +
                                       "-fx-border-radius: 6px; " +
                                       "-fx-cursor: hand;");
-        viewAllAchievementsBtn.setOnAction(e -> showAllAchievementsWindow(conn));
+        viewAllAchievementsBtn.setOnAction(e -> showAllAchievementsWindow(achievements));
         viewAllAchievementsBtn.setPadding(new Insets(8, 0, 0, 0));
         userInfo.getChildren().add(viewAllAchievementsBtn);
         
         // Right side: Single spider chart with 4 domains as axes
-        VBox spiderChartSection = createSingleDomainSpiderChart(conn);
+        VBox spiderChartSection = createSingleDomainSpiderChart(snap);
         
         // Set equal height for both sections and align bottoms
         userInfo.setPrefHeight(220);
@@ -348,7 +282,7 @@ public class ProfilePage {
         topSection.getChildren().addAll(userInfo, spiderChartSection);
 
         // Create the XP progress line chart
-        LineChart<String, Number> xpChart = createXpProgressChart(conn);
+        LineChart<String, Number> xpChart = createXpProgressChart(db, jobs);
         VBox lineChartContainer = new VBox(8);
         lineChartContainer.setAlignment(Pos.CENTER);
         lineChartContainer.setPadding(new Insets(16, 0, 0, 0));
@@ -372,6 +306,17 @@ public class ProfilePage {
         d.showAndWait();
     }
     
+    /**
+     * Fill names/xps for the first four domains from the snapshot and return the profile XP
+     */
+    private static double firstFourDomains(ProfileSnapshot snap, String[] names, double[] xps) {
+        for (int i = 0; i < 4 && i < snap.domainCount(); i++) {
+            names[i] = snap.domainName(i);
+            xps[i] = snap.domainXp(i);
+        }
+        return snap.profileXp();
+    }
+
     /**
      * Apply CSS to a scene - utility method
      */
@@ -389,7 +334,7 @@ public class ProfilePage {
     /**
      * Create a single spider chart with 4 domains as axes
      */
-    private static VBox createSingleDomainSpiderChart(Connection conn) {
+    private static VBox createSingleDomainSpiderChart(ProfileSnapshot snap) {
         VBox chartContainer = new VBox(8);
         chartContainer.setAlignment(Pos.CENTER);
         chartContainer.setPadding(new Insets(16));
@@ -402,11 +347,11 @@ public class ProfilePage {
         title.setAlignment(Pos.CENTER);
         
         // Create the spider chart with 4 domains as axes
-        Group spiderChart = createFourDomainSpiderChart(conn);
+        Group spiderChart = createFourDomainSpiderChart(snap);
         
         // Make the chart clickable
         spiderChart.setOnMouseClicked(event -> {
-            showDetailedDomainCharts(conn, ((Node) event.getSource()).getScene().getWindow());
+            showDetailedDomainCharts(snap, ((Node) event.getSource()).getScene().getWindow());
         });
         
         // Add hover effect
@@ -425,7 +370,7 @@ public class ProfilePage {
     /**
      * Create a spider chart with 4 domains as axes
      */
-    private static Group createFourDomainSpiderChart(Connection conn) {
+    private static Group createFourDomainSpiderChart(ProfileSnapshot snap) {
         Group chart = new Group();
         
         // Chart dimensions - smaller
@@ -437,25 +382,7 @@ public class ProfilePage {
         String[] domainNames = new String[4];
         double[] domainXps = new double[4];
         
-        try (PreparedStatement ps = conn.prepareStatement("SELECT id, name FROM domains ORDER BY id");
-             ResultSet rs = ps.executeQuery()) {
-            int index = 0;
-            while (rs.next() && index < 4) {
-                domainNames[index] = rs.getString("name");
-                int domainId = rs.getInt("id");
-                
-                // Get total XP for this domain
-                try (PreparedStatement xpPs = conn.prepareStatement("SELECT COALESCE(SUM(xp),0) FROM elements WHERE domain_id = ?")) {
-                    xpPs.setInt(1, domainId);
-                    try (ResultSet xpRs = xpPs.executeQuery()) {
-                        if (xpRs.next()) domainXps[index] = xpRs.getDouble(1);
-                    }
-                }
-                index++;
-            }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
+        firstFourDomains(snap, domainNames, domainXps);
         
         // Find max XP for scaling
         double maxXp = 0;
@@ -539,7 +466,7 @@ public class ProfilePage {
     /**
      * Show detailed domain charts in a separate window
      */
-    private static void showDetailedDomainCharts(Connection conn, Window owner) {
+    private static void showDetailedDomainCharts(ProfileSnapshot snap, Window owner) {
         Stage detailStage = new Stage();
         detailStage.initOwner(owner);
         detailStage.initModality(Modality.APPLICATION_MODAL);
@@ -555,18 +482,9 @@ public class ProfilePage {
         domainsChartsSection.setPadding(new Insets(0, 0, 20, 0));
         
         // Get all domains and create spider charts
-        try (PreparedStatement ps = conn.prepareStatement("SELECT id, name FROM domains ORDER BY id");
-             ResultSet rs = ps.executeQuery()) {
-            int domainIndex = 0;
-            while (rs.next() && domainIndex < 4) {
-                int domainId = rs.getInt("id");
-                String domainName = rs.getString("name");
-                VBox domainChart = createDomainSpiderChartWithProgress(conn, domainName, domainId, domainIndex);
-                domainsChartsSection.getChildren().add(domainChart);
-                domainIndex++;
-            }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
+        for (int domainIndex = 0; domainIndex < Math.min(4, snap.domainCount()); domainIndex++) {
+            VBox domainChart = createDomainSpiderChartWithProgress(snap, domainIndex);
+            domainsChartsSection.getChildren().add(domainChart);
         }
         
         // Close button
@@ -589,9 +507,10 @@ public class ProfilePage {
     }
     
     /**
-     * Create a line chart showing daily XP progress over time
+     * Create a line chart showing daily XP progress over time; it fills in once
+     * the xp_log query, run in the background by jobs, comes back
      */
-    private static LineChart<String, Number> createXpProgressChart(Connection conn) {
+    private static LineChart<String, Number> createXpProgressChart(Database db, UiTasks.Scope jobs) {
         // Create the chart
         CategoryAxis xAxis = new CategoryAxis();
         NumberAxis yAxis = new NumberAxis();
@@ -611,29 +530,22 @@ public class ProfilePage {
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("Profile XP");
         
-        try (PreparedStatement ps = conn.prepareStatement(
-            "SELECT date, profile_xp FROM xp_log ORDER BY date")) {
-            ResultSet rs = ps.executeQuery();
-            
-            while (rs.next()) {
-                String date = rs.getString("date");
-                double xp = rs.getDouble("profile_xp");
-                
-                // Format date for display (show month/year)
-                String formattedDate = formatDateForChart(date);
-                series.getData().add(new XYChart.Data<>(formattedDate, xp));
-            }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
-        
         lineChart.getData().add(series);
-        
-        // Style the series
-        if (!series.getData().isEmpty()) {
-            series.getNode().setStyle("-fx-stroke: #ff6b35; -fx-stroke-width: 3px;");
-        }
-        
+
+        jobs.load(() -> {
+            List<TaskViews.XpPoint> points = TaskViews.xpHistory(db);
+            // Format dates for display (show month/year) here rather than on the FX thread
+            List<XYChart.Data<String, Number>> data = new ArrayList<>(points.size());
+            for (TaskViews.XpPoint p : points) data.add(new XYChart.Data<>(formatDateForChart(p.date), p.profileXp));
+            return data;
+        }, data -> {
+            series.getData().setAll(data);
+            // Style the series
+            if (!data.isEmpty()) {
+                series.getNode().setStyle("-fx-stroke: #ff6b35; -fx-stroke-width: 3px;");
+            }
+        });
+
         return lineChart;
     }
     
@@ -652,18 +564,18 @@ public class ProfilePage {
     /**
      * Create a spider chart for a single domain showing its 4 elements
      */
-    private static VBox createDomainSpiderChart(Connection conn, String domainName, int domainId) {
+    private static VBox createDomainSpiderChart(ProfileSnapshot snap, int domainIndex) {
         VBox chartContainer = new VBox(8);
         chartContainer.setAlignment(Pos.CENTER);
         chartContainer.setPadding(new Insets(10));
         
         // Title
-        Label title = new Label(domainName);
+        Label title = new Label(snap.domainName(domainIndex));
         title.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: #ffffff;");
         title.setPadding(new Insets(0, 0, 10, 0));
         
         // Create the spider chart
-        Group spiderChart = createSpiderChart(conn, domainId);
+        Group spiderChart = createSpiderChart(snap, domainIndex);
         
         chartContainer.getChildren().addAll(title, spiderChart);
         return chartContainer;
@@ -672,7 +584,7 @@ public class ProfilePage {
     /**
      * Show all achievements window
      */
-    private static void showAllAchievementsWindow(Connection conn) {
+    private static void showAllAchievementsWindow(AchievementEngine achievements) {
         Stage achievementsStage = new Stage();
         achievementsStage.setTitle("Achievements");
         achievementsStage.initModality(Modality.APPLICATION_MODAL);
@@ -694,19 +606,11 @@ public class ProfilePage {
         achievementsGrid.setVgap(20);
         achievementsGrid.setAlignment(Pos.CENTER);
         
-        // Define all achievements (3 unlocked + 3 locked)
-        Achievement[] achievements = {
-            new Achievement("20_day_streak.png", "20 Day Streak", "Consistency Master", "#f59e0b", true, "Complete 20 consecutive days"),
-            new Achievement("getting_started.png", "Getting Started", "First Steps", "#10b981", true, "Complete your first task"),
-            new Achievement("100_tasks.png", "100 Tasks", "Task Master", "#8b5cf6", true, "Complete 100 total tasks"),
-            new Achievement("365_day_streak.png", "365 Day Streak", "Legendary", "#f59e0b", false, "Complete 365 consecutive days"),
-            new Achievement("1000_tasks.png", "1000 Tasks", "Ultimate Master", "#10b981", false, "Complete 1000 total tasks"),
-            new Achievement("perfect_week.png", "Perfect Week", "Flawless", "#8b5cf6", false, "Complete all tasks for 7 consecutive days")
-        };
-        
-        // Add achievements to grid
-        for (int i = 0; i < achievements.length; i++) {
-            VBox achievementCard = createAchievementCard(achievements[i]);
+        // Unlock state comes precomputed from the engine
+        List<AchievementEngine.Achievement> all = AchievementEngine.ALL;
+        for (int i = 0; i < all.size(); i++) {
+            AchievementEngine.Achievement a = all.get(i);
+            VBox achievementCard = createAchievementCard(a, achievements.isUnlocked(a.code));
             achievementsGrid.add(achievementCard, i % 3, i / 3);
         }
         
@@ -729,34 +633,17 @@ public class ProfilePage {
         achievementsStage.show();
     }
     
-    /**
-     * Achievement data class
-     */
-    private static class Achievement {
-        String imageFile, title, subtitle, color, requirement;
-        boolean unlocked;
-        
-        Achievement(String imageFile, String title, String subtitle, String color, boolean unlocked, String requirement) {
-            this.imageFile = imageFile;
-            this.title = title;
-            this.subtitle = subtitle;
-            this.color = color;
-            this.unlocked = unlocked;
-            this.requirement = requirement;
-        }
-    }
-    
     /**
      * Create individual achievement card for the window
      */
-    private static VBox createAchievementCard(Achievement achievement) {
+    private static VBox createAchievementCard(AchievementEngine.Achievement achievement, boolean unlocked) {
         VBox card = new VBox(8);
         card.setAlignment(Pos.CENTER);
         card.setPadding(new Insets(16, 12, 16, 12));
         card.setPrefWidth(160);
         card.setPrefHeight(140);
         
-        if (achievement.unlocked) {
+        if (unlocked) {
             // Unlocked achievement
             card.setStyle("-fx-background-color: " + achievement.color + "20; " +
                          "-fx-background-radius: 12px; " +
@@ -790,13 +677,13 @@ public class ProfilePage {
             System.out.println("Could not load image: resources/achievements/" + achievement.imageFile);
         }
         
-        if (!achievement.unlocked) {
+        if (!unlocked) {
             imageView.setOpacity(0.3);
         }
         
         // Title
         Label titleLabel = new Label(achievement.title);
-        if (achievement.unlocked) {
+        if (unlocked) {
             titleLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: 600; -fx-text-fill: " + achievement.color + ";");
         } else {
             titleLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: 600; -fx-text-fill: #6b7280;");
@@ -804,7 +691,7 @@ public class ProfilePage {
         
         // Subtitle
         Label subtitleLabel = new Label(achievement.subtitle);
-        if (achievement.unlocked) {
+        if (unlocked) {
             subtitleLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: #9ca3af; -fx-font-weight: 400;");
         } else {
             subtitleLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: #4b5563; -fx-font-weight: 400;");
@@ -814,14 +701,14 @@ public class ProfilePage {
         Label requirementLabel = new Label(achievement.requirement);
         requirementLabel.setWrapText(true);
         requirementLabel.setMaxWidth(140);
-        if (achievement.unlocked) {
+        if (unlocked) {
             requirementLabel.setStyle("-fx-font-size: 8px; -fx-text-fill: #6b7280; -fx-font-weight: 400;");
         } else {
             requirementLabel.setStyle("-fx-font-size: 8px; -fx-text-fill: #374151; -fx-font-weight: 400;");
         }
         
         // Unlocked overlay
-        if (achievement.unlocked) {
+        if (unlocked) {
             Label unlockedLabel = new Label("UNLOCKED");
             unlockedLabel.setStyle("-fx-font-size: 8px; -fx-font-weight: bold; -fx-text-fill: " + achievement.color + ";");
             unlockedLabel.setPadding(new Insets(2, 6, 2, 6));
@@ -841,7 +728,7 @@ public class ProfilePage {
     /**
      * Create achievement badges section
      */
-    private static VBox createAchievementBadges() {
+    private static VBox createAchievementBadges(AchievementEngine achievements) {
         VBox badgesContainer = new VBox(12);
         badgesContainer.setAlignment(Pos.TOP_LEFT);
         badgesContainer.setPadding(new Insets(16, 0, 0, 0));
@@ -855,17 +742,20 @@ public class ProfilePage {
         HBox badgesRow = new HBox(12);
         badgesRow.setAlignment(Pos.CENTER_LEFT);
         
-        // 20 Day Streak Badge
-        VBox streakBadge = createBadge("20_day_streak.png", "20 Day Streak", "Consistency Master", "#f59e0b");
-        badgesRow.getChildren().add(streakBadge);
-        
-        // Getting Started Badge
-        VBox startBadge = createBadge("getting_started.png", "Getting Started", "First Steps", "#10b981");
-        badgesRow.getChildren().add(startBadge);
-        
-        // 100 Tasks Badge
-        VBox tasksBadge = createBadge("100_tasks.png", "100 Tasks", "Task Master", "#8b5cf6");
-        badgesRow.getChildren().add(tasksBadge);
+        // The three most recent unlocks
+        List<AchievementEngine.Achievement> unlocked = new ArrayList<>();
+        for (AchievementEngine.Achievement a : AchievementEngine.ALL) {
+            if (achievements.isUnlocked(a.code)) unlocked.add(a);
+        }
+        unlocked.sort((a, b) -> Long.compare(achievements.unlockedAt(b.code), achievements.unlockedAt(a.code)));
+        for (AchievementEngine.Achievement a : unlocked.subList(0, Math.min(3, unlocked.size()))) {
+            badgesRow.getChildren().add(createBadge(a.imageFile, a.title, a.subtitle, a.color));
+        }
+        if (unlocked.isEmpty()) {
+            Label none = new Label("None unlocked yet");
+            none.setStyle("-fx-font-size: 12px; -fx-text-fill: #9ca3af;");
+            badgesRow.getChildren().add(none);
+        }
         
         badgesContainer.getChildren().addAll(badgesTitle, badgesRow);
         return badgesContainer;
@@ -917,31 +807,23 @@ public class ProfilePage {
     /**
      * Create a spider chart with progress bar for a domain
      */
-    private static VBox createDomainSpiderChartWithProgress(Connection conn, String domainName, int domainId, int domainIndex) {
+    private static VBox createDomainSpiderChartWithProgress(ProfileSnapshot snap, int domainIndex) {
         VBox chartContainer = new VBox(8);
         chartContainer.setAlignment(Pos.CENTER);
         chartContainer.setPadding(new Insets(10));
         chartContainer.setPrefSize(180, 220);
         
         // Title with bold italic styling
-        Label title = new Label(domainName);
+        Label title = new Label(snap.domainName(domainIndex));
         title.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: #ffffff; -fx-font-style: italic;");
         title.setPadding(new Insets(0, 0, 8, 0));
         title.setAlignment(Pos.CENTER);
         
         // Create the spider chart (smaller)
-        Group spiderChart = createSpiderChart(conn, domainId, 100); // Smaller radius
+        Group spiderChart = createSpiderChart(snap, domainIndex, 100); // Smaller radius
         
         // Calculate domain completion percentage
-        double domainXp = 0;
-        try (PreparedStatement ps = conn.prepareStatement("SELECT COALESCE(SUM(xp),0) FROM elements WHERE domain_id = ?")) {
-            ps.setInt(1, domainId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) domainXp = rs.getDouble(1);
-            }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
+        double domainXp = snap.domainXp(domainIndex);
         
         // Calculate progress (assuming max XP per domain is 1000 for now)
         double maxDomainXp = 1000.0;
@@ -966,14 +848,14 @@ public class ProfilePage {
     /**
      * Create the actual spider chart visualization
      */
-    private static Group createSpiderChart(Connection conn, int domainId) {
-        return createSpiderChart(conn, domainId, 120);
+    private static Group createSpiderChart(ProfileSnapshot snap, int domainIndex) {
+        return createSpiderChart(snap, domainIndex, 120);
     }
     
     /**
      * Create the actual spider chart visualization with custom radius
      */
-    private static Group createSpiderChart(Connection conn, int domainId, double radius) {
+    private static Group createSpiderChart(ProfileSnapshot snap, int domainIndex, double radius) {
         Group chart = new Group();
         
         // Chart dimensions
@@ -984,19 +866,12 @@ public class ProfilePage {
         String[] elementNames = new String[4];
         double[] elementXps = new double[4];
         
-        try (PreparedStatement ps = conn.prepareStatement(
-            "SELECT name, xp FROM elements WHERE domain_id = ? ORDER BY id")) {
-            ps.setInt(1, domainId);
-            ResultSet rs = ps.executeQuery();
-            
-            int index = 0;
-            while (rs.next() && index < 4) {
-                elementNames[index] = rs.getString("name");
-                elementXps[index] = rs.getDouble("xp");
-                index++;
-            }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
+        int index = 0;
+        for (int e = 0; e < snap.elementCount() && index < 4; e++) {
+            if (snap.elementDomain(e) != domainIndex) continue;
+            elementNames[index] = snap.elementName(e);
+            elementXps[index] = snap.elementXp(e);
+            index++;
         }
         
         // Find max XP for scaling
@@ -0,0 +1,33 @@
+import java.sql.SQLException;
+
+/**
+ * Storage for element/domain XP, the completion log and the daily XP log.
+ * Days are local epoch days; TaskRepository.NEVER means "no such day".
+ * Implementations: SqliteProfileRepository (the app) and InMemoryProfileRepository.
+ */
+public interface ProfileRepository {
+
+    /** Add delta (may be negative) to one element's XP. */
+    void addElementXp(int elementId, int delta) throws SQLException;
+
+    /** Apply the first n (elementIds[i], deltas[i]) pairs as one batch. */
+    void addElementXp(int[] elementIds, int[] deltas, int n) throws SQLException;
+
+    /**
+     * Fill ids/xps with every domain's id and XP total, in id order, as far as the
+     * arrays reach. Returns the number of domains, which may exceed the arrays.
+     */
+    int domainTotals(int[] ids, double[] xps) throws SQLException;
+
+    /** Profile XP over all domains, as defined by ProfileXp. */
+    double profileXp() throws SQLException;
+
+    /** Append one row to the completion history. */
+    void recordCompletion(int taskId, long day, long doneAtMillis, int majorXp, int minorXp) throws SQLException;
+
+    /** Latest day with a daily XP log entry, or NEVER. */
+    long lastLoggedDay() throws SQLException;
+
+    /** Write the daily XP snapshot for day, with the first n (domainIds[i], domainXps[i]) totals. */
+    void appendDailyLog(long day, double profileXp, int[] domainIds, double[] domainXps, int n) throws SQLException;
+}
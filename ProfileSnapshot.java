@@ -0,0 +1,212 @@
+import java.util.Arrays;
+
+/**
+ * Immutable view of the profile: user, domain and element XP, profile XP and the
+ * rank derived from it. ProfileSnapshotService builds one from the database at
+ * startup and then derives each new snapshot from the previous one as XP deltas
+ * commit, so the views read fields instead of running queries.
+ *
+ * Domains and elements are held in id order; elements point at their domain by index.
+ * The XP values live in Longs tries, so a delta copies one short path and shares
+ * the rest with the previous snapshot.
+ */
+public final class ProfileSnapshot {
+
+    /** Profile XP at which the top rank is reached. */
+    public static final double XP_MAX = 109500.0;
+
+    public static final String[] RANK_NAMES = {
+        "Rookie", "Explorer", "Crafter", "Strategist", "Expert", "Architect", "Elite", "Master", "Legend"
+    };
+
+    public static final ProfileSnapshot EMPTY =
+        new ProfileSnapshot("", 0, new int[0], new String[0], new long[0],
+                            new int[0], new String[0], new int[0], new long[0]);
+
+    private final String userName;
+    private final long endDay;                 // epoch day the 4-year run ends
+
+    private final int[] domainIds;
+    private final String[] domainNames;
+    private final Longs domainXp;
+
+    private final int[] elementIds;
+    private final String[] elementNames;
+    private final int[] elementDomain;         // index into the domain arrays
+    private final Longs elementXp;
+    private final int[] elementIndexById;      // element id -> index, -1 if none
+
+    private final double logSum;               // see ProfileXp
+    private final double profileXp;
+
+    ProfileSnapshot(String userName, long endDay, int[] domainIds, String[] domainNames, long[] domainXp,
+                    int[] elementIds, String[] elementNames, int[] elementDomain, long[] elementXp) {
+        this(userName, endDay, domainIds, domainNames, Longs.of(domainXp), elementIds, elementNames, elementDomain,
+             Longs.of(elementXp), indexById(elementIds), logSum(domainXp));
+    }
+
+    private ProfileSnapshot(String userName, long endDay, int[] domainIds, String[] domainNames, Longs domainXp,
+                            int[] elementIds, String[] elementNames, int[] elementDomain, Longs elementXp,
+                            int[] elementIndexById, double logSum) {
+        this.userName = userName;
+        this.endDay = endDay;
+        this.domainIds = domainIds;
+        this.domainNames = domainNames;
+        this.domainXp = domainXp;
+        this.elementIds = elementIds;
+        this.elementNames = elementNames;
+        this.elementDomain = elementDomain;
+        this.elementXp = elementXp;
+        this.elementIndexById = elementIndexById;
+        this.logSum = logSum;
+        this.profileXp = ProfileXp.fromLogSum(logSum, domainIds.length);
+    }
+
+    /**
+     * This snapshot with deltas[i] added to element ids[i] (and its domain) for i < n.
+     * Each delta copies one path of each XP trie and adjusts profile XP in log
+     * space, so the cost does not grow with the number of domains or elements;
+     * names, ids and untouched XP nodes are shared. Unknown ids are ignored.
+     */
+    public ProfileSnapshot withElementDeltas(int[] ids, int[] deltas, int n) {
+        Longs dxp = domainXp, exp = elementXp;
+        double sum = logSum;
+        for (int i = 0; i < n; i++) {
+            int id = ids[i];
+            if (id < 0 || id >= elementIndexById.length || elementIndexById[id] < 0) continue;
+            int e = elementIndexById[id], d = elementDomain[e];
+            exp = exp.with(e, exp.get(e) + deltas[i]);
+            long old = dxp.get(d);
+            dxp = dxp.with(d, old + deltas[i]);
+            sum = ProfileXp.update(sum, old, old + deltas[i]);
+        }
+        return new ProfileSnapshot(userName, endDay, domainIds, domainNames, dxp,
+                                   elementIds, elementNames, elementDomain, exp, elementIndexById, sum);
+    }
+
+    // -------------------- profile --------------------------------------------
+
+    public String userName() { return userName; }
+
+    public int daysLeft(long today) { return (int)(endDay - today); }
+
+    public double profileXp() { return profileXp; }
+
+    /** Continuous level in [0, 8]; the integer part is the rank index. */
+    public double levelF() { return Math.sqrt(profileXp / XP_MAX) * 8.0; }
+
+    public int level() { return Math.min(8, Math.max(0, (int)levelF())); }
+
+    /** Progress through the current level, 1.0 at the top rank. */
+    public double levelFraction() {
+        int lvl = level();
+        return lvl < 8 ? levelF() - lvl : 1.0;
+    }
+
+    public String rankName() { return RANK_NAMES[level()]; }
+
+    // -------------------- domains and elements --------------------------------------------
+
+    public int domainCount() { return domainIds.length; }
+
+    public int domainId(int i) { return domainIds[i]; }
+
+    public String domainName(int i) { return domainNames[i]; }
+
+    public long domainXp(int i) { return domainXp.get(i); }
+
+    /** Index of the domain with this id, or -1. */
+    public int domainIndex(int domainId) {
+        for (int i = 0; i < domainIds.length; i++) {
+            if (domainIds[i] == domainId) return i;
+        }
+        return -1;
+    }
+
+    public int elementCount() { return elementIds.length; }
+
+    public String elementName(int i) { return elementNames[i]; }
+
+    public long elementXp(int i) { return elementXp.get(i); }
+
+    /** Domain index of element i. */
+    public int elementDomain(int i) { return elementDomain[i]; }
+
+    // -------------------- helpers --------------------------------------------
+
+    private static double logSum(long[] domainXp) {
+        double sum = 0.0;
+        for (long xp : domainXp) sum += ProfileXp.term(xp);
+        return sum;
+    }
+
+    private static int[] indexById(int[] ids) {
+        int max = 0;
+        for (int id : ids) max = Math.max(max, id);
+        int[] index = new int[max + 1];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < ids.length; i++) index[ids[i]] = i;
+        return index;
+    }
+
+    /**
+     * An immutable long vector stored as a 32-way trie. with() copies only the
+     * nodes on one root-to-leaf path (a 32-slot leaf plus one node per level, two
+     * levels for up to 1024 slots) and shares every other node with the original.
+     */
+    static final class Longs {
+        private static final int BITS = 5, WIDTH = 1 << BITS, MASK = WIDTH - 1;
+
+        private final Object root;     // long[WIDTH] leaf when shift is 0, else Object[WIDTH] of subtries
+        private final int shift;
+
+        private Longs(Object root, int shift) {
+            this.root = root;
+            this.shift = shift;
+        }
+
+        static Longs of(long[] values) {
+            int leaves = Math.max(1, (values.length + MASK) >>> BITS);
+            Object[] level = new Object[leaves];
+            for (int i = 0; i < leaves; i++) {
+                long[] leaf = new long[WIDTH];
+                System.arraycopy(values, i * WIDTH, leaf, 0, Math.min(WIDTH, values.length - i * WIDTH));
+                level[i] = leaf;
+            }
+            int shift = 0;
+            while (level.length > 1) {
+                Object[] up = new Object[(level.length + MASK) >>> BITS];
+                for (int i = 0; i < up.length; i++) {
+                    Object[] node = new Object[WIDTH];
+                    System.arraycopy(level, i * WIDTH, node, 0, Math.min(WIDTH, level.length - i * WIDTH));
+                    up[i] = node;
+                }
+                level = up;
+                shift += BITS;
+            }
+            return new Longs(level[0], shift);
+        }
+
+        long get(int i) {
+            Object node = root;
+            for (int s = shift; s > 0; s -= BITS) node = ((Object[]) node)[(i >>> s) & MASK];
+            return ((long[]) node)[i & MASK];
+        }
+
+        Longs with(int i, long v) {
+            return new Longs(with(root, shift, i, v), shift);
+        }
+
+        private static Object with(Object node, int shift, int i, long v) {
+            if (shift == 0) {
+                long[] leaf = ((long[]) node).clone();
+                leaf[i & MASK] = v;
+                return leaf;
+            }
+            Object[] copy = ((Object[]) node).clone();
+            int k = (i >>> shift) & MASK;
+            copy[k] = with(copy[k], shift - BITS, i, v);
+            return copy;
+        }
+    }
+}
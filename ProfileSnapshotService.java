@@ -0,0 +1,100 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Holds the current ProfileSnapshot. reload() reads it from the database (startup,
+ * and after domains or elements are added); after that SqliteProfileRepository
+ * feeds every committed XP delta through applyDeltas, which swaps in a snapshot
+ * derived from the previous one. Readers on any thread just call current().
+ */
+public class ProfileSnapshotService {
+
+    private final Database db;
+    private final AtomicReference<ProfileSnapshot> current = new AtomicReference<>(ProfileSnapshot.EMPTY);
+    private volatile Consumer<Object> events = e -> {};
+
+    public ProfileSnapshotService(Database db) {
+        this.db = db;
+    }
+
+    public ProfileSnapshot current() {
+        return current.get();
+    }
+
+    /** Receives an XpEvents.RankUp whenever a delta lifts the profile into a higher rank. */
+    public void setEventSink(Consumer<Object> events) {
+        this.events = events;
+    }
+
+    /** Add deltas[i] to element ids[i] for i < n. The arrays are read before this returns. */
+    public void applyDeltas(int[] ids, int[] deltas, int n) {
+        ProfileSnapshot prev, next;
+        do {
+            prev = current.get();
+            next = prev.withElementDeltas(ids, deltas, n);
+        } while (!current.compareAndSet(prev, next));
+        if (next.level() > prev.level()) {
+            events.accept(new XpEvents.RankUp(prev.rankName(), next.rankName(), next.profileXp()));
+        }
+    }
+
+    /**
+     * Rebuild the snapshot from the database and install it once the transaction
+     * commits. Runs on the writer, and the swap is queued with db.afterCommit, so
+     * it lands after the deltas committed before it and before any committed
+     * after it, and a rolled-back reload installs nothing.
+     */
+    public ProfileSnapshot reload() throws SQLException {
+        return db.write(c -> {
+            String user = "";
+            long endDay = 0;
+            try (ResultSet rs = db.prepare(c, "SELECT name, created_at FROM user WHERE id = 1").executeQuery()) {
+                if (rs.next()) {
+                    user = rs.getString(1);
+                    endDay = LocalDate.parse(rs.getString(2)).plusYears(4).toEpochDay();
+                }
+            }
+
+            List<Integer> dIds = new ArrayList<>();
+            List<String> dNames = new ArrayList<>();
+            List<Long> dXp = new ArrayList<>();
+            try (ResultSet rs = db.prepare(c,
+                    "SELECT d.id, d.name, COALESCE(t.xp,0) FROM domains d LEFT JOIN domain_totals t ON t.domain_id = d.id ORDER BY d.id")
+                    .executeQuery()) {
+                while (rs.next()) {
+                    dIds.add(rs.getInt(1));
+                    dNames.add(rs.getString(2));
+                    dXp.add(rs.getLong(3));
+                }
+            }
+
+            List<Integer> eIds = new ArrayList<>(), eDomain = new ArrayList<>();
+            List<String> eNames = new ArrayList<>();
+            List<Long> eXp = new ArrayList<>();
+            try (ResultSet rs = db.prepare(c, "SELECT id, domain_id, name, xp FROM elements ORDER BY id").executeQuery()) {
+                while (rs.next()) {
+                    int di = dIds.indexOf(rs.getInt(2));
+                    if (di < 0) continue;
+                    eIds.add(rs.getInt(1));
+                    eDomain.add(di);
+                    eNames.add(rs.getString(3));
+                    eXp.add(rs.getLong(4));
+                }
+            }
+
+            ProfileSnapshot s = new ProfileSnapshot(user, endDay,
+                dIds.stream().mapToInt(Integer::intValue).toArray(), dNames.toArray(new String[0]),
+                dXp.stream().mapToLong(Long::longValue).toArray(),
+                eIds.stream().mapToInt(Integer::intValue).toArray(), eNames.toArray(new String[0]),
+                eDomain.stream().mapToInt(Integer::intValue).toArray(),
+                eXp.stream().mapToLong(Long::longValue).toArray());
+            db.afterCommit(() -> current.set(s));
+            return s;
+        });
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Profile XP from domain totals, kept in log space: each domain contributes
+ * ln(1 + max(xp, 0)) to a running sum, and profile XP is exp(sum / n) - 1, the
+ * geometric mean of (1 + xp) over all n domains, minus one. Changing one domain
+ * adjusts the sum by the difference of two terms, so an update costs the same for
+ * any number of domains, and an empty or negative domain drags the mean down
+ * instead of zeroing it.
+ *
+ * The profile_totals triggers (Migrations) compute the same thing in SQL, with
+ * Java ln and exp registered by Database on SQLite builds that lack them.
+ */
+public final class ProfileXp {
+
+    private ProfileXp() {}
+
+    /** A domain's contribution to the log sum. */
+    public static double term(double domainXp) {
+        return Math.log1p(Math.max(domainXp, 0.0));
+    }
+
+    /** Profile XP for a log sum over domainCount domains. */
+    public static double fromLogSum(double logSum, int domainCount) {
+        return domainCount == 0 ? 0.0 : Math.max(0.0, Math.expm1(logSum / domainCount));   // no rounding below zero
+    }
+
+    /** The log sum adjusted for one domain moving from oldXp to newXp. */
+    public static double update(double logSum, double oldXp, double newXp) {
+        return logSum - term(oldXp) + term(newXp);
+    }
+}
@@ -0,0 +1,235 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * XP bookkeeping over the repositories: task completion, overdue penalties and the
+ * daily XP log. It has no JDBC of its own, so it runs unchanged against SQLite or
+ * the in-memory repositories. Transactions are the caller's job (Main wraps each
+ * entry point in db.write); the in-memory repositories need none.
+ */
+public class ProgressService {
+
+    /**
+     * Result of the penalty passes run by logToday; XP values are the (negative)
+     * totals deducted, and a task overdue on several replayed days is listed once per day
+     */
+    public static class PenaltySummary {
+        final List<String> taskNames = new ArrayList<>();
+        int majorXp, minorXp;
+        int daysReplayed;
+
+        public int taskCount() { return taskNames.size(); }
+
+        public int daysReplayed() { return daysReplayed; }
+
+        @Override
+        public String toString() {
+            String names = String.join(", ", taskNames.subList(0, Math.min(10, taskCount())));
+            if (taskCount() > 10) names += ", +" + (taskCount() - 10) + " more";
+            return "XP penalties applied for " + taskCount() + " overdue task(s): " + names +
+                   " (Major: " + majorXp + ", Minor: " + minorXp + ")" +
+                   (daysReplayed > 0 ? ", " + daysReplayed + " missed day(s) caught up" : "");
+        }
+    }
+
+    private final TaskRepository tasks;
+    private final ProfileRepository profile;
+
+    // Swapped whole when the rules are edited; each entry point reads it once
+    private volatile XpRules rules = XpRules.DEFAULTS;
+
+    // Receives the XpEvents; Main defers them to after commit
+    private Consumer<Object> events = e -> {};
+
+    // Scratch buffers for XpEngine, reused across calls (callers serialize through db.write)
+    private final int[] xp = new int[2];
+    private final XpFormula.Context formulaContext = new XpFormula.Context();
+    private int[] batchType = new int[64], batchDomain = new int[64], batchStreak = new int[64];
+    private boolean[] batchFocus = new boolean[64], batchLate = new boolean[64];
+    private int[] batchTaskIds = new int[64];
+    private int[] batchXp = new int[128], batchIds = new int[128], batchDeltas = new int[128];
+    private long[] batchPairs = new long[128];
+    private int[] logDomainIds = new int[8];
+    private double[] logDomainXps = new double[8];
+
+    public ProgressService(TaskRepository tasks, ProfileRepository profile) {
+        this.tasks = tasks;
+        this.profile = profile;
+    }
+
+    public TaskRepository tasks() { return tasks; }
+
+    public ProfileRepository profile() { return profile; }
+
+    public XpRules rules() { return rules; }
+
+    /** Install a new rule set; completions already in progress finish with the old one. */
+    public void setRules(XpRules rules) { this.rules = rules; }
+
+    /** Where TaskCompleted, PenaltyApplied and DayRolledOver go; they are emitted as the changes are made. */
+    public void setEventSink(Consumer<Object> events) { this.events = events; }
+
+    /**
+     * Complete a task on day: grant XP to both elements, append to the completion
+     * log and bump the streak. Returns false if the task does not exist.
+     */
+    public boolean complete(int taskId, long day, long nowMillis) throws SQLException {
+        TaskRepository.Task t = tasks.find(taskId);
+        if (t == null) return false;
+
+        // late completion: done after the due day
+        boolean late = t.nextDue > 0 && t.nextDue != Recurrence.NOT_DUE && day > t.nextDue;
+        // a late completion starts a new streak even if no penalty pass has reset it yet
+        int streak = late ? 0 : t.streak;
+        XpRules r = rules;
+        int type = r.typeCode(t.type);
+        double modifier = r.hasFormulas() ? formulaModifier(r, t, type, streak, day, late) : 1.0;
+        XpEngine.score(r, type, t.majorDomain, t.majorFocus, streak, late, modifier, xp, 0);
+
+        int imaj = xp[XpEngine.MAJOR], imin = xp[XpEngine.MINOR];
+        profile.addElementXp(t.majorElem, imaj);
+        profile.addElementXp(t.minorElem, imin);
+        profile.recordCompletion(taskId, day, nowMillis, imaj, imin);
+        tasks.markCompleted(taskId, day);
+        events.accept(new XpEvents.TaskCompleted(taskId, t.name, day, t.majorElem, t.minorElem,
+                                                 imaj, imin, streak + 1, late));
+        return true;
+    }
+
+    /** The product of r's formulas for completing t on day. */
+    private double formulaModifier(XpRules r, TaskRepository.Task t, int type, int streak, long day, boolean late) {
+        XpRules.Rule rule = r.rule(type, t.majorDomain);
+        XpFormula.Context c = formulaContext;
+        c.streak = streak;
+        c.frequency = t.frequency;
+        c.dow = (int)Math.floorMod(day + 3, 7L) + 1;  // epoch day 0 was a Thursday
+        c.focus = t.majorFocus;
+        c.late = late;
+        c.baseMajor = rule == null ? 0 : rule.baseMajor;
+        c.baseMinor = rule == null ? 0 : rule.baseMinor;
+        c.type = t.type;
+        c.domain = r.domainName(t.majorDomain);
+        return r.modifier(c);
+    }
+
+    /**
+     * Bring the daily log up to today. Days since the last logged day that the app
+     * was not opened are replayed in order first: each gets its overdue penalties
+     * and its own log snapshot. Then, once per day, daily_login is completed and
+     * today is logged. Today's penalties run on every call (after daily_login, so it
+     * is never penalized on login day); the penalty stamp keeps them to once per
+     * task per day.
+     */
+    public PenaltySummary logToday(long today, long nowMillis) throws SQLException {
+        PenaltySummary penalties = new PenaltySummary();
+
+        long last = profile.lastLoggedDay();
+        boolean logged = last != TaskRepository.NEVER && last >= today;
+
+        if (last != TaskRepository.NEVER) {
+            for (long day = last + 1; day < today; day++) {
+                applyOverduePenalties(day, penalties);
+                snapshot(day);
+                penalties.daysReplayed++;
+            }
+        }
+
+        if (!logged) {
+            int dlt = tasks.findIdByName("daily_login");
+            if (dlt >= 0) complete(dlt, today, nowMillis);
+        }
+
+        applyOverduePenalties(today, penalties);
+
+        if (!logged) snapshot(today);
+        return penalties;
+    }
+
+    private void snapshot(long day) throws SQLException {
+        int n = profile.domainTotals(logDomainIds, logDomainXps);
+        if (n > logDomainIds.length) {
+            logDomainIds = new int[n];
+            logDomainXps = new double[n];
+            n = profile.domainTotals(logDomainIds, logDomainXps);
+        }
+        profile.appendDailyLog(day, profile.profileXp(), logDomainIds, logDomainXps, Math.min(n, logDomainIds.length));
+        events.accept(new XpEvents.DayRolledOver(day));
+    }
+
+    /**
+     * Penalize every active task that is overdue on day and not yet penalized for it.
+     * One read returns all of them (focus flag and streak included), XpEngine scores
+     * them in one batch, the element deltas are summed per element and written as a
+     * single batch, and the tasks are stamped in one set-based update. Adds its
+     * results to summary.
+     */
+    public void applyOverduePenalties(long day, PenaltySummary summary) throws SQLException {
+        List<TaskRepository.Task> overdue = tasks.overdueOn(day);
+        int n = overdue.size();
+        if (n == 0) return;
+        ensureBatchCapacity(n);
+        XpRules r = rules;
+
+        for (int i = 0; i < n; i++) {
+            TaskRepository.Task t = overdue.get(i);
+            batchType[i] = r.typeCode(t.type);
+            batchDomain[i] = t.majorDomain;
+            batchFocus[i] = t.majorFocus;
+            batchStreak[i] = t.streak;
+            batchLate[i] = true;
+        }
+        // Late-completion XP at the streak the miss ends, negated
+        XpEngine.scoreBatch(r, n, batchType, batchDomain, batchFocus, batchStreak, batchLate, -1, batchXp);
+
+        // Pack (element, delta) pairs so a sort groups them by element, then sum each run
+        int majTotal = 0, minTotal = 0;
+        for (int i = 0; i < n; i++) {
+            TaskRepository.Task t = overdue.get(i);
+            int maj_penalty = batchXp[2 * i + XpEngine.MAJOR], min_penalty = batchXp[2 * i + XpEngine.MINOR];
+            batchPairs[2 * i] = pack(t.majorElem, maj_penalty);
+            batchPairs[2 * i + 1] = pack(t.minorElem, min_penalty);
+
+            batchTaskIds[i] = t.id;
+            summary.taskNames.add(t.name);
+            majTotal += maj_penalty;
+            minTotal += min_penalty;
+        }
+        summary.majorXp += majTotal;
+        summary.minorXp += minTotal;
+        Arrays.sort(batchPairs, 0, 2 * n);
+        int m = 0;
+        for (int i = 0; i < 2 * n; i++) {
+            int id = (int)(batchPairs[i] >> 32), delta = (int)batchPairs[i];
+            if (m > 0 && batchIds[m - 1] == id) batchDeltas[m - 1] += delta;
+            else { batchIds[m] = id; batchDeltas[m++] = delta; }
+        }
+        profile.addElementXp(batchIds, batchDeltas, m);
+
+        // Stamp every task penalized above so it is not penalized again for this day
+        tasks.markOverduePenalized(day);
+        // the event outlives this call, so it gets its own copy of the ids
+        events.accept(new XpEvents.PenaltyApplied(day, Arrays.copyOf(batchTaskIds, n), majTotal, minTotal));
+    }
+
+    private static long pack(int elementId, int delta) {
+        return ((long)elementId << 32) | (delta & 0xFFFFFFFFL);
+    }
+
+    private void ensureBatchCapacity(int n) {
+        if (batchType.length >= n) return;
+        int cap = Math.max(n, batchType.length * 2);
+        batchType = new int[cap];
+        batchDomain = new int[cap];
+        batchFocus = new boolean[cap];
+        batchStreak = new int[cap];
+        batchTaskIds = new int[cap];
+        batchLate = new boolean[cap];
+        batchXp = new int[2 * cap];
+        batchPairs = new long[2 * cap];
+        batchIds = new int[2 * cap];
+        batchDeltas = new int[2 * cap];
+    }
+}
@@ -0,0 +1,200 @@
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * When a task comes due again. Three kinds:
+ * <pre>
+ *   every 3 days      INTERVAL  (also "daily", "once", or a plain number of days)
+ *   mon,wed,fri       WEEKDAYS  (also "weekdays" and "weekends")
+ *   3/week, 2/month   QUOTA     N completions per calendar week (Mon-Sun) or month
+ * </pre>
+ * Interval schedules are what tasks.frequency always meant and are stored as
+ * just the frequency; the others go in tasks.recurrence as their spec, with
+ * frequency set to the longest gap the schedule allows so streaks and the
+ * next_due triggers still have a day count to work with.
+ *
+ * A quota task is due on the last day it can still meet its quota, so it is
+ * only overdue (and penalized) once the quota has become impossible. A
+ * weekday task is only penalized on its own weekdays.
+ */
+public final class Recurrence {
+
+    public static final int INTERVAL = 0;
+    public static final int WEEKDAYS = 1;
+    public static final int QUOTA = 2;
+
+    public static final int WEEK = 7;
+    public static final int MONTH = 31;
+
+    /** Most completions a monthly quota can ask for: February has 28 days. */
+    public static final int MONTH_QUOTA_MAX = 28;
+
+    /** nextDue for a task that is not due again. */
+    public static final long NOT_DUE = Long.MAX_VALUE;
+
+    private static final String[] DAY_NAMES = {"mon", "tue", "wed", "thu", "fri", "sat", "sun"};
+
+    public final int kind;
+    public final int days;       // INTERVAL
+    public final int weekdays;   // WEEKDAYS: bit 0 = Monday
+    public final int count;      // QUOTA: completions per period
+    public final int period;     // QUOTA: WEEK or MONTH
+
+    private Recurrence(int kind, int days, int weekdays, int count, int period) {
+        this.kind = kind;
+        this.days = days;
+        this.weekdays = weekdays;
+        this.count = count;
+        this.period = period;
+    }
+
+    public static Recurrence every(int days) {
+        if (days < 0) throw new IllegalArgumentException("Schedule: negative interval " + days);
+        return new Recurrence(INTERVAL, days, 0, 0, 0);
+    }
+
+    public static Recurrence onWeekdays(int mask) {
+        if ((mask & 0x7F) == 0) throw new IllegalArgumentException("Schedule: no weekdays");
+        return new Recurrence(WEEKDAYS, 0, mask & 0x7F, 0, 0);
+    }
+
+    public static Recurrence quota(int count, int period) {
+        if (period != WEEK && period != MONTH) throw new IllegalArgumentException("Schedule: period must be week or month");
+        int max = period == WEEK ? WEEK : MONTH_QUOTA_MAX;
+        if (count < 1 || count > max) {
+            throw new IllegalArgumentException("Schedule: " + count + " per " + (period == WEEK ? "week" : "month")
+                + " does not fit; at most " + max);
+        }
+        return new Recurrence(QUOTA, 0, 0, count, period);
+    }
+
+    /** The schedule for a stored row: its recurrence spec, or else its frequency. */
+    public static Recurrence of(String spec, int frequency) {
+        return spec == null || spec.isEmpty() ? every(frequency) : parse(spec);
+    }
+
+    /** Parse a schedule as typed by the user; throws IllegalArgumentException("Schedule: ...") if it is not one. */
+    public static Recurrence parse(String spec) {
+        String s = spec.trim().toLowerCase(Locale.ROOT);
+        if (s.isEmpty()) throw new IllegalArgumentException("Schedule: empty");
+        try {
+            if (s.matches("\\d+")) return every(Integer.parseInt(s));
+            if (s.matches("every \\d+ days?")) return every(Integer.parseInt(s.split(" ")[1]));
+            if (s.matches("\\d+ ?/ ?(week|month)")) {
+                String[] p = s.split("/");
+                return quota(Integer.parseInt(p[0].trim()), p[1].trim().equals("week") ? WEEK : MONTH);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Schedule: number too large in: " + spec);
+        }
+        if (s.equals("daily")) return every(1);
+        if (s.equals("once")) return every(0);
+        if (s.equals("weekdays")) return onWeekdays(0x1F);
+        if (s.equals("weekends")) return onWeekdays(0x60);
+        int mask = 0;
+        for (String part : s.split("[,\\s]+")) {
+            int d = dayIndex(part);
+            if (d < 0) throw new IllegalArgumentException("Schedule: unknown day '" + part + "' in: " + spec);
+            mask |= 1 << d;
+        }
+        return onWeekdays(mask);
+    }
+
+    public boolean isInterval() { return kind == INTERVAL; }
+
+    /**
+     * The day count stored in tasks.frequency and used as the streak gap: the
+     * interval itself, the longest gap between two due days, or for a quota the
+     * longest gap between two completions that still meet it (the first days of
+     * one period, then the last days of the next: 13 days for 1/week, 1 for 7/week).
+     */
+    public int frequency() {
+        switch (kind) {
+            case INTERVAL: return days;
+            case WEEKDAYS: {
+                int longest = 0;
+                for (int d = 0; d < 7; d++) {
+                    if ((weekdays & (1 << d)) == 0) continue;
+                    int gap = 1;
+                    while ((weekdays & (1 << ((d + gap) % 7))) == 0) gap++;
+                    longest = Math.max(longest, gap);
+                }
+                return longest;
+            }
+            default: return 2 * (period - count) + 1;
+        }
+    }
+
+    /** Whether day is one the task is scheduled on; only weekday schedules have off days. */
+    public boolean isScheduledOn(long day) {
+        return kind != WEEKDAYS || (weekdays & (1 << dayOfWeek(day))) != 0;
+    }
+
+    /**
+     * Epoch day the task is next due after being done on lastDone: 0 if it was
+     * never done, NOT_DUE for a one-time task. history is only consulted for quotas.
+     */
+    public long nextDue(long lastDone, CompletionHistory history) {
+        if (lastDone == TaskRepository.NEVER) return 0;
+        switch (kind) {
+            case INTERVAL:
+                return days > 0 ? lastDone + days : NOT_DUE;
+            case WEEKDAYS:
+                for (long d = lastDone + 1; ; d++) {
+                    if ((weekdays & (1 << dayOfWeek(d))) != 0) return d;
+                }
+            default: {
+                long start = periodStart(lastDone), end = periodEnd(lastDone);
+                int done = history.countBetween(start, end);
+                if (done < count) return Math.max(lastDone + 1, end - (count - done) + 1);
+                return periodEnd(end + 1) - count + 1;
+            }
+        }
+    }
+
+    /** Monday = 0; epoch day 0 was a Thursday. */
+    static int dayOfWeek(long day) {
+        return (int) Math.floorMod(day + 3, 7L);
+    }
+
+    /** Short name of day's weekday as it appears in a weekday spec, e.g. "wed". */
+    static String dayName(long day) {
+        return DAY_NAMES[dayOfWeek(day)];
+    }
+
+    private long periodStart(long day) {
+        if (period == WEEK) return day - dayOfWeek(day);
+        return LocalDate.ofEpochDay(day).withDayOfMonth(1).toEpochDay();
+    }
+
+    private long periodEnd(long day) {
+        if (period == WEEK) return periodStart(day) + 6;
+        LocalDate d = LocalDate.ofEpochDay(day);
+        return d.withDayOfMonth(d.lengthOfMonth()).toEpochDay();
+    }
+
+    private static int dayIndex(String name) {
+        for (int i = 0; i < DAY_NAMES.length; i++) {
+            if (name.length() >= 3 && name.startsWith(DAY_NAMES[i])) return i;
+        }
+        return -1;
+    }
+
+    /** The spec, in the form parse() reads back. */
+    @Override
+    public String toString() {
+        switch (kind) {
+            case INTERVAL: return days == 0 ? "once" : days == 1 ? "daily" : "every " + days + " days";
+            case WEEKDAYS: {
+                StringBuilder sb = new StringBuilder();
+                for (int d = 0; d < 7; d++) {
+                    if ((weekdays & (1 << d)) == 0) continue;
+                    if (sb.length() > 0) sb.append(',');
+                    sb.append(DAY_NAMES[d]);
+                }
+                return sb.toString();
+            }
+            default: return count + "/" + (period == WEEK ? "week" : "month");
+        }
+    }
+}
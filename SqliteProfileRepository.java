@@ -0,0 +1,128 @@
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * ProfileRepository over elements, the materialized totals, task_completions and xp_log.
+ * Like SqliteTaskRepository, calls join the caller's db.write transaction if there is one.
+ * XP deltas are also passed to the ProfileSnapshotService, if given, once they commit.
+ */
+public class SqliteProfileRepository implements ProfileRepository {
+
+    private final Database db;
+    private final ProfileSnapshotService snapshots;
+
+    public SqliteProfileRepository(Database db) {
+        this(db, null);
+    }
+
+    public SqliteProfileRepository(Database db, ProfileSnapshotService snapshots) {
+        this.db = db;
+        this.snapshots = snapshots;
+    }
+
+    @Override
+    public void addElementXp(int elementId, int delta) throws SQLException {
+        db.runWrite(c -> {
+            PreparedStatement ps = db.prepare(c, "UPDATE elements SET xp = xp + ? WHERE id = ?");
+            ps.setInt(1, delta);
+            ps.setInt(2, elementId);
+            ps.executeUpdate();
+            if (snapshots != null) {
+                db.afterCommit(() -> snapshots.applyDeltas(new int[] { elementId }, new int[] { delta }, 1));
+            }
+        });
+    }
+
+    @Override
+    public void addElementXp(int[] elementIds, int[] deltas, int n) throws SQLException {
+        if (n == 0) return;
+        db.runWrite(c -> {
+            PreparedStatement ps = db.prepare(c, "UPDATE elements SET xp = xp + ? WHERE id = ?");
+            for (int i = 0; i < n; i++) {
+                ps.setInt(1, deltas[i]);
+                ps.setInt(2, elementIds[i]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            if (snapshots != null) {
+                // callers reuse their arrays, so hand the snapshot a copy
+                int[] ids = Arrays.copyOf(elementIds, n), ds = Arrays.copyOf(deltas, n);
+                db.afterCommit(() -> snapshots.applyDeltas(ids, ds, n));
+            }
+        });
+    }
+
+    @Override
+    public int domainTotals(int[] ids, double[] xps) throws SQLException {
+        return db.read(c -> {
+            int n = 0;
+            try (ResultSet rs = db.prepare(c, "SELECT domain_id, xp FROM domain_totals ORDER BY domain_id").executeQuery()) {
+                for (; rs.next(); n++) {
+                    if (n >= ids.length) continue;
+                    ids[n] = rs.getInt(1);
+                    xps[n] = rs.getDouble(2);
+                }
+            }
+            return n;
+        });
+    }
+
+    @Override
+    public double profileXp() throws SQLException {
+        return db.read(c -> {
+            try (ResultSet rs = db.prepare(c, "SELECT profile_xp FROM profile_totals WHERE id = 1").executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : 0.0;
+            }
+        });
+    }
+
+    @Override
+    public void recordCompletion(int taskId, long day, long doneAtMillis, int majorXp, int minorXp) throws SQLException {
+        db.runWrite(c -> {
+            PreparedStatement ps = db.prepare(c,
+                "INSERT INTO task_completions(task_id,day,done_at,major_xp,minor_xp) VALUES(?,?,?,?,?)");
+            ps.setInt(1, taskId);
+            ps.setLong(2, day);
+            ps.setLong(3, doneAtMillis);
+            ps.setInt(4, majorXp);
+            ps.setInt(5, minorXp);
+            ps.executeUpdate();
+        });
+    }
+
+    @Override
+    public long lastLoggedDay() throws SQLException {
+        return db.read(c -> {
+            try (ResultSet rs = db.prepare(c, "SELECT MAX(date) FROM xp_log").executeQuery()) {
+                String last = rs.next() ? rs.getString(1) : null;
+                return last == null ? TaskRepository.NEVER : LocalDate.parse(last).toEpochDay();
+            }
+        });
+    }
+
+    @Override
+    public void appendDailyLog(long day, double profileXp, int[] domainIds, double[] domainXps, int n) throws SQLException {
+        db.runWrite(c -> {
+            PreparedStatement ps = db.prepare(c, "INSERT INTO xp_log(date,profile_xp) VALUES(?,?)");
+            ps.setString(1, SqliteTaskRepository.dayStr(day));
+            ps.setDouble(2, profileXp);
+            ps.executeUpdate();
+            long logId;
+            try (ResultSet rs = db.prepare(c, "SELECT last_insert_rowid()").executeQuery()) {
+                logId = rs.next() ? rs.getLong(1) : -1;
+            }
+            if (n == 0) return;
+            PreparedStatement dps = db.prepare(c, "INSERT INTO xp_log_domain(log_id,domain_id,xp) VALUES(?,?,?)");
+            for (int i = 0; i < n; i++) {
+                dps.setLong(1, logId);
+                dps.setInt(2, domainIds[i]);
+                dps.setDouble(3, domainXps[i]);
+                dps.addBatch();
+            }
+            dps.executeBatch();
+        });
+    }
+}
@@ -0,0 +1,237 @@
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TaskRepository over the tasks table. Every call goes through Database, so a
+ * caller already inside db.write gets its reads and writes in that transaction.
+ * With a DueSchedule, every task it changes is refreshed there on commit.
+ */
+public class SqliteTaskRepository implements TaskRepository {
+
+    private static final String TASK_COLUMNS =
+        "SELECT t.id, t.name, t.type, t.frequency, t.major_elem, t.minor_elem, t.streak, t.last_done, t.active, " +
+        "COALESCE(e.is_focus,0), COALESCE(e.domain_id,0), t.next_due FROM tasks t LEFT JOIN elements e ON e.id = t.major_elem ";
+
+    // Weekday specs are stored as day names ("mon,wed,fri"), quotas as "3/week"; a
+    // weekday task is skipped on its off days (see Recurrence.isScheduledOn)
+    private static final String OVERDUE_FILTER =
+        "WHERE t.active = 1 AND t.next_due > 0 AND t.next_due < ? " +
+        "AND (t.last_penalty_date IS NULL OR t.last_penalty_date < ?) " +
+        "AND (t.recurrence IS NULL OR t.recurrence LIKE '%/%' OR instr(t.recurrence, ?) > 0)";
+
+    private final Database db;
+    private final DueSchedule schedule;        // may be null
+
+    public SqliteTaskRepository(Database db) {
+        this(db, null);
+    }
+
+    public SqliteTaskRepository(Database db, DueSchedule schedule) {
+        this.db = db;
+        this.schedule = schedule;
+    }
+
+    @Override
+    public int create(String name, String type, int frequency, int majorElem, int minorElem) throws SQLException {
+        return db.write(c -> {
+            PreparedStatement ps = db.prepare(c,
+                "INSERT INTO tasks(name,type,frequency,major_elem,minor_elem) VALUES(?,?,?,?,?)");
+            ps.setString(1, name);
+            ps.setString(2, type);
+            ps.setInt(3, frequency);
+            ps.setInt(4, majorElem);
+            ps.setInt(5, minorElem);
+            ps.executeUpdate();
+            int id;
+            try (ResultSet rs = db.prepare(c, "SELECT last_insert_rowid()").executeQuery()) {
+                id = rs.next() ? rs.getInt(1) : -1;
+            }
+            refreshSchedule(id);
+            return id;
+        });
+    }
+
+    @Override
+    public Task find(int id) throws SQLException {
+        return db.read(c -> {
+            PreparedStatement ps = db.prepare(c, TASK_COLUMNS + "WHERE t.id = ?");
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? toTask(rs) : null;
+            }
+        });
+    }
+
+    @Override
+    public int findIdByName(String name) throws SQLException {
+        return db.read(c -> {
+            PreparedStatement ps = db.prepare(c, "SELECT id FROM tasks WHERE name = ?");
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        });
+    }
+
+    @Override
+    public List<Task> dueOn(long day) throws SQLException {
+        return db.read(c -> {
+            PreparedStatement ps = db.prepare(c, TASK_COLUMNS + "WHERE t.active = 1 AND t.next_due <= ?");
+            ps.setLong(1, day);
+            return toTasks(ps);
+        });
+    }
+
+    @Override
+    public List<Task> overdueOn(long day) throws SQLException {
+        // Nothing can be overdue before the earliest due day
+        if (schedule != null && schedule.earliestDue() >= day) return new ArrayList<>();
+        return db.read(c -> {
+            PreparedStatement ps = db.prepare(c, TASK_COLUMNS + OVERDUE_FILTER);
+            ps.setLong(1, day);
+            ps.setString(2, dayStr(day));
+            ps.setString(3, Recurrence.dayName(day));
+            return toTasks(ps);
+        });
+    }
+
+    @Override
+    public void markCompleted(int id, long day) throws SQLException {
+        db.runWrite(c -> {
+            int frequency, streak;
+            CompletionHistory h;
+            String recurrence;
+            PreparedStatement sel = db.prepare(c, "SELECT frequency, streak, history, recurrence FROM tasks WHERE id = ?");
+            sel.setInt(1, id);
+            try (ResultSet rs = sel.executeQuery()) {
+                if (!rs.next()) return;
+                frequency = rs.getInt(1);
+                streak = rs.getInt(2);
+                h = CompletionHistory.fromBytes(rs.getBytes(3));
+                recurrence = rs.getString(4);
+            }
+
+            PreparedStatement ps = db.prepare(c, "UPDATE tasks SET last_done = ?, streak = ?, history = ? WHERE id = ?");
+            ps.setString(1, dayStr(day));
+            ps.setInt(2, h.add(day, frequency, streak));
+            ps.setBytes(3, h.toBytes());
+            ps.setInt(4, id);
+            ps.executeUpdate();
+            // The trigger has set next_due from frequency; richer schedules overwrite it
+            if (recurrence != null) setNextDue(id, Recurrence.parse(recurrence).nextDue(day, h));
+            refreshSchedule(id);
+        });
+    }
+
+    @Override
+    public void setRecurrence(int id, Recurrence r) throws SQLException {
+        db.runWrite(c -> {
+            PreparedStatement ps = db.prepare(c, "UPDATE tasks SET recurrence = ?, frequency = ? WHERE id = ?");
+            ps.setString(1, r.isInterval() ? null : r.toString());
+            ps.setInt(2, r.frequency());
+            ps.setInt(3, id);
+            ps.executeUpdate();
+            if (!r.isInterval()) {
+                PreparedStatement sel = db.prepare(c, "SELECT last_done, history FROM tasks WHERE id = ?");
+                sel.setInt(1, id);
+                long due;
+                try (ResultSet rs = sel.executeQuery()) {
+                    if (!rs.next()) return;
+                    String last = rs.getString(1);
+                    long lastDone = (last == null || last.isEmpty()) ? NEVER : LocalDate.parse(last).toEpochDay();
+                    due = r.nextDue(lastDone, CompletionHistory.fromBytes(rs.getBytes(2)));
+                }
+                setNextDue(id, due);
+            }
+            refreshSchedule(id);
+        });
+    }
+
+    private void setNextDue(int id, long due) throws SQLException {
+        db.runWrite(c -> {
+            PreparedStatement ps = db.prepare(c, "UPDATE tasks SET next_due = ? WHERE id = ?");
+            if (due == Recurrence.NOT_DUE) ps.setNull(1, Types.INTEGER);
+            else ps.setLong(1, due);
+            ps.setInt(2, id);
+            ps.executeUpdate();
+        });
+    }
+
+    private void refreshSchedule(int id) throws SQLException {
+        if (schedule != null) schedule.refresh(id);
+    }
+
+    @Override
+    public CompletionHistory history(int id) throws SQLException {
+        return db.read(c -> {
+            PreparedStatement ps = db.prepare(c, "SELECT history FROM tasks WHERE id = ?");
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return CompletionHistory.fromBytes(rs.next() ? rs.getBytes(1) : null);
+            }
+        });
+    }
+
+    @Override
+    public void markOverduePenalized(long day) throws SQLException {
+        db.runWrite(c -> {
+            PreparedStatement ps = db.prepare(c,
+                "UPDATE tasks AS t SET last_penalty_date = ?, streak = 0 " + OVERDUE_FILTER);
+            ps.setString(1, dayStr(day));
+            ps.setLong(2, day);
+            ps.setString(3, dayStr(day));
+            ps.setString(4, Recurrence.dayName(day));
+            ps.executeUpdate();
+        });
+    }
+
+    @Override
+    public void setActive(int id, boolean active) throws SQLException {
+        db.runWrite(c -> {
+            PreparedStatement ps = db.prepare(c, "UPDATE tasks SET active = ? WHERE id = ?");
+            ps.setInt(1, active ? 1 : 0);
+            ps.setInt(2, id);
+            ps.executeUpdate();
+            refreshSchedule(id);
+        });
+    }
+
+    @Override
+    public void delete(int id) throws SQLException {
+        db.runWrite(c -> {
+            PreparedStatement ps = db.prepare(c, "DELETE FROM tasks WHERE id = ?");
+            ps.setInt(1, id);
+            ps.executeUpdate();
+            refreshSchedule(id);
+        });
+    }
+
+    // -------------------- helpers --------------------------------------------
+
+    /** tasks stores days as yyyy-MM-dd text. */
+    static String dayStr(long day) {
+        return LocalDate.ofEpochDay(day).toString();
+    }
+
+    private static List<Task> toTasks(PreparedStatement ps) throws SQLException {
+        List<Task> out = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) out.add(toTask(rs));
+        }
+        return out;
+    }
+
+    private static Task toTask(ResultSet rs) throws SQLException {
+        String last = rs.getString(8);
+        long lastDone = (last == null || last.isEmpty()) ? NEVER : LocalDate.parse(last).toEpochDay();
+        long nextDue = rs.getLong(12);
+        if (rs.wasNull()) nextDue = Recurrence.NOT_DUE;
+        return new Task(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getInt(5), rs.getInt(6),
+                        rs.getInt(11), rs.getInt(7), lastDone, nextDue, rs.getInt(9) == 1, rs.getInt(10) == 1);
+    }
+}
@@ -0,0 +1,61 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU of compiled statements for one connection.
+ * Not thread-safe: the owning connection is only used by one thread at a time.
+ * The counters are atomic so they can be read from any thread.
+ */
+public class StatementCache {
+
+    private final Connection conn;
+    private final LinkedHashMap<String, PreparedStatement> map;
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+    final AtomicLong evictions = new AtomicLong();
+
+    public StatementCache(Connection conn, int capacity) {
+        this.conn = conn;
+        // access-order so the least recently used statement is evicted first
+        this.map = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= capacity) return false;
+                evictions.incrementAndGet();
+                try { eldest.getValue().close(); } catch (SQLException ignore) {}
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Compiled statement for sql, preparing it on a miss.
+     */
+    public PreparedStatement get(String sql) throws SQLException {
+        PreparedStatement ps = map.get(sql);
+        if (ps != null && !ps.isClosed()) {
+            hits.incrementAndGet();
+            return ps;
+        }
+        misses.incrementAndGet();
+        ps = conn.prepareStatement(sql);
+        map.put(sql, ps);
+        return ps;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public void close() {
+        for (PreparedStatement ps : map.values()) {
+            try { ps.close(); } catch (SQLException ignore) {}
+        }
+        map.clear();
+    }
+}
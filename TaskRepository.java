@@ -0,0 +1,81 @@
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Storage for tasks as the XP rules see them.
+ * Days are local epoch days (LocalDate.toEpochDay); NEVER marks a task that has not been done.
+ * Implementations: SqliteTaskRepository (the app) and InMemoryTaskRepository (benchmarks, simulations).
+ */
+public interface TaskRepository {
+
+    long NEVER = Long.MIN_VALUE;
+
+    /**
+     * One task row, including its major element's domain and whether that element
+     * is currently the focus element
+     */
+    final class Task {
+        public final int id;
+        public final String name, type;
+        public final int frequency, majorElem, minorElem, majorDomain, streak;
+        public final long lastDone;
+        public final long nextDue;                 // 0 if never done, Recurrence.NOT_DUE if not due again
+        public final boolean active, majorFocus;
+
+        public Task(int id, String name, String type, int frequency, int majorElem, int minorElem, int majorDomain,
+                    int streak, long lastDone, long nextDue, boolean active, boolean majorFocus) {
+            this.id = id;
+            this.name = name;
+            this.type = type;
+            this.frequency = frequency;
+            this.majorElem = majorElem;
+            this.minorElem = minorElem;
+            this.majorDomain = majorDomain;
+            this.streak = streak;
+            this.lastDone = lastDone;
+            this.nextDue = nextDue;
+            this.active = active;
+            this.majorFocus = majorFocus;
+        }
+    }
+
+    /** Insert a new task and return its id. */
+    int create(String name, String type, int frequency, int majorElem, int minorElem) throws SQLException;
+
+    /** The task with this id, or null. */
+    Task find(int id) throws SQLException;
+
+    /** Id of the task with this name, or -1. */
+    int findIdByName(String name) throws SQLException;
+
+    /** Active tasks due on or before day (never-done tasks included). */
+    List<Task> dueOn(long day) throws SQLException;
+
+    /**
+     * Active tasks overdue on day that have not been penalized for day or a later
+     * day. A weekday task is left out on the days it is not scheduled for.
+     */
+    List<Task> overdueOn(long day) throws SQLException;
+
+    /**
+     * Record a completion on day: sets last done, adds day to the completion
+     * history and sets the streak from it.
+     */
+    void markCompleted(int id, long day) throws SQLException;
+
+    /**
+     * Give the task a schedule. Interval schedules just set the frequency; others
+     * are stored with frequency as their longest gap, and next_due is recomputed.
+     */
+    void setRecurrence(int id, Recurrence r) throws SQLException;
+
+    /** The task's completion days (empty if it has none or does not exist). */
+    CompletionHistory history(int id) throws SQLException;
+
+    /** Stamp every task returned by overdueOn(day) as penalized for day; a miss ends the streak. */
+    void markOverduePenalized(long day) throws SQLException;
+
+    void setActive(int id, boolean active) throws SQLException;
+
+    void delete(int id) throws SQLException;
+}
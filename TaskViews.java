@@ -0,0 +1,245 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Row models for the task windows and the queries that fill them. The queries
+ * run on a background thread (see UiTasks.Scope.load) and everything derived from
+ * the row, streak stats included, is worked out there; the FX thread only gets
+ * immutable rows and turns them into nodes.
+ */
+public final class TaskViews {
+
+    private TaskViews() {}
+
+    /** A task due today, as the home list shows it. */
+    public static final class DueRow {
+        public final int id;
+        public final String name;
+        public final String type;
+        public final int streak;
+        public final int bestStreak;
+        public final int last30;          // completed days among the last 30
+        public final boolean overdue;
+        public final String majorName;
+        public final boolean focus;
+        public final String domainName;
+        public final int domainId;
+
+        DueRow(int id, String name, String type, int streak, int bestStreak, int last30, boolean overdue,
+               String majorName, boolean focus, String domainName, int domainId) {
+            this.id = id;
+            this.name = name;
+            this.type = type;
+            this.streak = streak;
+            this.bestStreak = bestStreak;
+            this.last30 = last30;
+            this.overdue = overdue;
+            this.majorName = majorName;
+            this.focus = focus;
+            this.domainName = domainName;
+            this.domainId = domainId;
+        }
+
+        /** The row this task gets in the completed section once it is done, with the streak it reached. */
+        public DoneRow asDone(int newStreak) {
+            return new DoneRow(id, name, type, majorName, domainName, domainId, newStreak);
+        }
+
+        // Value equality, so a refresh can tell an unchanged row from one to rebind
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DueRow)) return false;
+            DueRow r = (DueRow) o;
+            return id == r.id && streak == r.streak && bestStreak == r.bestStreak && last30 == r.last30
+                && overdue == r.overdue && focus == r.focus && domainId == r.domainId
+                && Objects.equals(name, r.name) && Objects.equals(type, r.type)
+                && Objects.equals(majorName, r.majorName) && Objects.equals(domainName, r.domainName);
+        }
+
+        @Override
+        public int hashCode() { return id; }
+    }
+
+    /** A task completed today. */
+    public static final class DoneRow {
+        public final int id;
+        public final String name;
+        public final String type;
+        public final String majorName;
+        public final String domainName;
+        public final int domainId;
+        public final int streak;
+
+        DoneRow(int id, String name, String type, String majorName, String domainName, int domainId, int streak) {
+            this.id = id;
+            this.name = name;
+            this.type = type;
+            this.majorName = majorName;
+            this.domainName = domainName;
+            this.domainId = domainId;
+            this.streak = streak;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DoneRow)) return false;
+            DoneRow r = (DoneRow) o;
+            return id == r.id && domainId == r.domainId && streak == r.streak && Objects.equals(name, r.name)
+                && Objects.equals(type, r.type) && Objects.equals(majorName, r.majorName)
+                && Objects.equals(domainName, r.domainName);
+        }
+
+        @Override
+        public int hashCode() { return ~id; }
+    }
+
+    /** A row of the All Tasks window. */
+    public static final class TaskRow {
+        public final int id;
+        public final String name;
+        public final String type;
+        public final Recurrence schedule;
+        public final String lastDone;     // yyyy-MM-dd or null
+        public final int streak;
+        public final boolean active;
+
+        TaskRow(int id, String name, String type, Recurrence schedule, String lastDone, int streak, boolean active) {
+            this.id = id;
+            this.name = name;
+            this.type = type;
+            this.schedule = schedule;
+            this.lastDone = lastDone;
+            this.streak = streak;
+            this.active = active;
+        }
+    }
+
+    /** The home window's data: what is due and what was done on one day. */
+    public static final class Today {
+        public final long day;
+        public final List<DueRow> due;
+        public final List<DoneRow> done;
+
+        Today(long day, List<DueRow> due, List<DoneRow> done) {
+            this.day = day;
+            this.due = due;
+            this.done = done;
+        }
+    }
+
+    /** One point of the profile XP chart. */
+    public static final class XpPoint {
+        public final String date;
+        public final double profileXp;
+
+        XpPoint(String date, double profileXp) {
+            this.date = date;
+            this.profileXp = profileXp;
+        }
+    }
+
+    /** Due and done rows for day, from one read transaction so a task is never in both. */
+    public static Today today(Database db, long day) throws SQLException {
+        return db.read(c -> {
+            if (!c.getAutoCommit()) return new Today(day, due(db, c, day), done(db, c, day));
+            c.setAutoCommit(false);
+            try {
+                return new Today(day, due(db, c, day), done(db, c, day));
+            } finally {
+                c.commit();
+                c.setAutoCommit(true);
+            }
+        });
+    }
+
+    public static List<DoneRow> done(Database db, long day) throws SQLException {
+        return db.read(c -> done(db, c, day));
+    }
+
+    /** Active tasks due on or before day. */
+    private static List<DueRow> due(Database db, Connection c, long day) throws SQLException {
+        PreparedStatement ps = db.prepare(c,
+            "SELECT t.id, t.name, t.type, t.streak, t.frequency, t.next_due, t.history, "
+            + "e.name, e.is_focus, d.name, d.id "
+            + "FROM tasks t "
+            + "JOIN elements e ON t.major_elem = e.id "
+            + "JOIN domains d ON e.domain_id = d.id "
+            + "WHERE t.active=1 AND t.next_due <= ?");
+        ps.setLong(1, day);
+        List<DueRow> rows = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                int frequency = rs.getInt(5);
+                // Overdue: was due before day (next_due is 0 for never-done tasks)
+                long nextDue = rs.getLong(6);
+                CompletionHistory history = CompletionHistory.fromBytes(rs.getBytes(7));
+                rows.add(new DueRow(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4),
+                    history.longestStreak(frequency), history.completedOfLast(30, day),
+                    nextDue > 0 && nextDue < day, rs.getString(8), rs.getInt(9) == 1,
+                    rs.getString(10), rs.getInt(11)));
+            }
+        }
+        return Collections.unmodifiableList(rows);
+    }
+
+    /** Active tasks completed on day, in id order. */
+    private static List<DoneRow> done(Database db, Connection c, long day) throws SQLException {
+        // Seek on idx_completions_day_task instead of scanning tasks with date(last_done)
+        PreparedStatement ps = db.prepare(c,
+            "SELECT t.id, t.name, t.type, e.name AS maj_name, d.name AS dname, d.id AS did, t.streak " +
+            "FROM task_completions c " +
+            "JOIN tasks t ON c.task_id = t.id " +
+            "JOIN elements e ON t.major_elem = e.id " +
+            "JOIN domains d ON e.domain_id = d.id " +
+            "WHERE c.day = ? AND t.active=1 " +
+            "GROUP BY c.task_id " +
+            "ORDER BY c.task_id");
+        ps.setLong(1, day);
+        List<DoneRow> rows = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                rows.add(new DoneRow(rs.getInt(1), rs.getString(2), rs.getString(3),
+                    rs.getString(4), rs.getString(5), rs.getInt(6), rs.getInt(7)));
+            }
+        }
+        return Collections.unmodifiableList(rows);
+    }
+
+    /** Every task in id order, optionally only those whose name or type contains search (lower case). */
+    public static List<TaskRow> all(Database db, String search) throws SQLException {
+        return db.read(c -> {
+            PreparedStatement ps = db.prepare(c,
+                "SELECT id, name, type, frequency, last_done, streak, active, recurrence FROM tasks ORDER BY id");
+            List<TaskRow> rows = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String name = rs.getString(2), type = rs.getString(3);
+                    if (!search.isEmpty() && !name.toLowerCase().contains(search)
+                            && !type.toLowerCase().contains(search)) {
+                        continue;
+                    }
+                    rows.add(new TaskRow(rs.getInt(1), name, type, Recurrence.of(rs.getString(8), rs.getInt(4)),
+                        rs.getString(5), rs.getInt(6), rs.getInt(7) == 1));
+                }
+            }
+            return Collections.unmodifiableList(rows);
+        });
+    }
+
+    /** The daily xp_log, oldest first. */
+    public static List<XpPoint> xpHistory(Database db) throws SQLException {
+        return db.read(c -> {
+            List<XpPoint> points = new ArrayList<>();
+            try (ResultSet rs = db.prepare(c, "SELECT date, profile_xp FROM xp_log ORDER BY date").executeQuery()) {
+                while (rs.next()) points.add(new XpPoint(rs.getString(1), rs.getDouble(2)));
+            }
+            return Collections.unmodifiableList(points);
+        });
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import javafx.stage.Window;
+import javafx.stage.WindowEvent;
+
+/**
+ * Background work for the GUI, one virtual thread per job. Jobs run in a Scope
+ * tied to a window: when the window is hidden the scope is cancelled, which
+ * interrupts its unfinished jobs and refuses new ones. A job that throws is
+ * reported to the one error handler, on the FX thread, unless its scope was
+ * cancelled first.
+ *
+ * Windows do their SQL through Scope.load: the query runs here and only its
+ * (immutable) result goes to the FX thread, so rendering never waits on SQLite.
+ */
+public final class UiTasks implements AutoCloseable {
+
+    /** A unit of background work. */
+    public interface Job {
+        void run() throws Exception;
+    }
+
+    /** Background work that produces something for the FX thread. */
+    public interface Query<T> {
+        T run() throws Exception;
+    }
+
+    private final ExecutorService exec =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("xlog-ui-", 0).factory());
+    private final Consumer<Throwable> onError;
+
+    /** onError is called on the FX thread. */
+    public UiTasks(Consumer<Throwable> onError) {
+        this.onError = onError;
+    }
+
+    /** A scope that is cancelled when window is hidden. Call on the FX thread. */
+    public Scope scope(Window window) {
+        Scope s = new Scope();
+        window.addEventHandler(WindowEvent.WINDOW_HIDDEN, e -> s.cancel());
+        return s;
+    }
+
+    /** Report t through the error handler, from any thread. */
+    public void report(Throwable t) {
+        if (Platform.isFxApplicationThread()) onError.accept(t);
+        else Platform.runLater(() -> onError.accept(t));
+    }
+
+    /** Stop every job, e.g. when the application exits. */
+    @Override
+    public void close() {
+        exec.shutdownNow();
+    }
+
+    /** Jobs belonging to one window. */
+    public final class Scope {
+        private final Set<Future<?>> running = ConcurrentHashMap.newKeySet();
+        private volatile boolean cancelled;
+
+        private Scope() {}
+
+        /** Run job on a virtual thread; a no-op once the scope is cancelled. */
+        public void run(Job job) {
+            if (cancelled) return;
+            Future<?>[] self = new Future<?>[1];
+            synchronized (self) {
+                self[0] = exec.submit(() -> {
+                    try {
+                        job.run();
+                    } catch (Throwable t) {
+                        if (!cancelled) report(t);
+                    } finally {
+                        synchronized (self) {
+                            running.remove(self[0]);
+                        }
+                    }
+                });
+                running.add(self[0]);
+            }
+            // cancel() may have run between the check above and the add
+            if (cancelled) self[0].cancel(true);
+        }
+
+        /**
+         * Run query on a virtual thread and hand its result to apply on the FX
+         * thread, unless the scope has been cancelled by then.
+         */
+        public <T> void load(Query<T> query, Consumer<T> apply) {
+            run(() -> {
+                T result = query.run();
+                Platform.runLater(() -> {
+                    if (!cancelled) apply.accept(result);
+                });
+            });
+        }
+
+        public boolean isCancelled() { return cancelled; }
+
+        public void cancel() {
+            cancelled = true;
+            for (Future<?> f : running) f.cancel(true);
+            running.clear();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * The one XP formula: type base, focus bonus, streak bonus and the late/overdue
+ * factor, with the parameters taken from an XpRules. Inputs are primitives and
+ * results go into a buffer the caller owns, so scoring allocates nothing; every
+ * path that moves XP (completion, base grants, overdue penalties) goes through here.
+ *
+ * Results are written as a (major, minor) pair: out[off + MAJOR], out[off + MINOR].
+ */
+public final class XpEngine {
+
+    public static final int MAJOR = 0, MINOR = 1;
+
+    private XpEngine() {}
+
+    /**
+     * Score one task into out[off], out[off + 1]. type is rules.typeCode of the task
+     * type, domainId the major element's domain and focus its focus flag; late applies
+     * the rule's late factor (a late completion, or an overdue penalty before the
+     * caller negates it). Types without a rule score 0.
+     */
+    public static void score(XpRules rules, int type, int domainId, boolean focus, int streak, boolean late,
+                             int[] out, int off) {
+        score(rules, type, domainId, focus, streak, late, 1.0, out, off);
+    }
+
+    /** score with both results also multiplied by modifier (the xp_formulas product) before rounding. */
+    public static void score(XpRules rules, int type, int domainId, boolean focus, int streak, boolean late,
+                             double modifier, int[] out, int off) {
+        XpRules.Rule r = rules.rule(type, domainId);
+        if (r == null) {
+            out[off + MAJOR] = 0;
+            out[off + MINOR] = 0;
+            return;
+        }
+        double maj_xp = r.baseMajor, min_xp = r.baseMinor;
+        if (focus) { maj_xp *= r.focusBonus; min_xp *= r.focusBonus; }
+
+        int pct = Math.min(streak, r.streakCapPct);
+        maj_xp *= (1 + pct / 100.0);
+        min_xp *= (1 + pct / 100.0);
+
+        if (late) { maj_xp *= r.lateFactor; min_xp *= r.lateFactor; }
+        if (modifier != 1.0) { maj_xp *= modifier; min_xp *= modifier; }
+
+        out[off + MAJOR] = (int)Math.round(maj_xp);
+        out[off + MINOR] = (int)Math.round(min_xp);
+    }
+
+    /**
+     * Score tasks 0..n-1 from parallel arrays into out (pair i at out[2i]); out must
+     * hold at least 2n ints. With sign -1 the results are negated, for penalties.
+     */
+    public static void scoreBatch(XpRules rules, int n, int[] types, int[] domains, boolean[] focus, int[] streaks,
+                                  boolean[] late, int sign, int[] out) {
+        for (int i = 0; i < n; i++) {
+            score(rules, types[i], domains[i], focus[i], streaks[i], late[i], out, 2 * i);
+            out[2 * i + MAJOR] *= sign;
+            out[2 * i + MINOR] *= sign;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * The events published on the EventBus. All are immutable and are published only
+ * after the change they describe has committed.
+ */
+public final class XpEvents {
+
+    private XpEvents() {}
+
+    /** A task was completed on day and granted majorXp/minorXp; streak is the new streak. */
+    public static final class TaskCompleted {
+        public final int taskId;
+        public final String taskName;
+        public final long day;
+        public final int majorElem, minorElem;
+        public final int majorXp, minorXp;
+        public final int streak;
+        public final boolean late;
+
+        public TaskCompleted(int taskId, String taskName, long day, int majorElem, int minorElem,
+                             int majorXp, int minorXp, int streak, boolean late) {
+            this.taskId = taskId;
+            this.taskName = taskName;
+            this.day = day;
+            this.majorElem = majorElem;
+            this.minorElem = minorElem;
+            this.majorXp = majorXp;
+            this.minorXp = minorXp;
+            this.streak = streak;
+            this.late = late;
+        }
+
+        @Override
+        public String toString() { return "TaskCompleted[" + taskName + " +" + majorXp + "/+" + minorXp + "]"; }
+    }
+
+    /** One overdue-penalty pass for day; the XP values are the (negative) totals. */
+    public static final class PenaltyApplied {
+        public final long day;
+        public final int[] taskIds;
+        public final int majorXp, minorXp;
+
+        public PenaltyApplied(long day, int[] taskIds, int majorXp, int minorXp) {
+            this.day = day;
+            this.taskIds = taskIds;
+            this.majorXp = majorXp;
+            this.minorXp = minorXp;
+        }
+
+        @Override
+        public String toString() { return "PenaltyApplied[day " + day + ", " + taskIds.length + " task(s)]"; }
+    }
+
+    /** Profile XP crossed into a higher rank. */
+    public static final class RankUp {
+        public final String fromRank, toRank;
+        public final double profileXp;
+
+        public RankUp(String fromRank, String toRank, double profileXp) {
+            this.fromRank = fromRank;
+            this.toRank = toRank;
+            this.profileXp = profileXp;
+        }
+
+        @Override
+        public String toString() { return "RankUp[" + fromRank + " -> " + toRank + "]"; }
+    }
+
+    /** day was closed out in the daily log (replayed or today). */
+    public static final class DayRolledOver {
+        public final long day;
+
+        public DayRolledOver(long day) {
+            this.day = day;
+        }
+
+        @Override
+        public String toString() { return "DayRolledOver[" + day + "]"; }
+    }
+}
@@ -0,0 +1,280 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A user-defined XP modifier: an expression that evaluates to a multiplier for a
+ * completion's XP, e.g.
+ *
+ *   type == 'grind' && domain == 'Fitness' && weekend ? 1.25 : 1
+ *   (1 + ln(1 + streak) / 10) / (1 + min(streak, 20) / 100)
+ *
+ * Source is parsed once into a tree of lambdas (constant subtrees folded) and the
+ * result is cached by source text, so evaluation is a few virtual calls.
+ *
+ * Numbers: literals, the Context variables streak, frequency, focus, late, weekend,
+ * dow (1 = Monday), base_major, base_minor, and min, max, ln, sqrt, pow, abs.
+ * Strings: 'quoted' literals and type, domain, usable only with == and !=.
+ * Operators by precedence: ?:, ||, &&, comparisons, + -, * /, unary - and !.
+ * Booleans are 1 and 0.
+ */
+public final class XpFormula {
+
+    /** The completion being scored; filled in by the caller and reused across evaluations. */
+    public static final class Context {
+        public int streak, frequency, dow;
+        public boolean focus, late;
+        public int baseMajor, baseMinor;
+        public String type = "", domain = "";
+    }
+
+    private interface Num { double eval(Context c); }
+
+    private interface Str { String eval(Context c); }
+
+    private static final Map<String, XpFormula> CACHE = new ConcurrentHashMap<>();
+
+    private final String source;
+    private final Num root;
+
+    private XpFormula(String source, Num root) {
+        this.source = source;
+        this.root = root;
+    }
+
+    /** The compiled formula for source, from the cache if it was compiled before. */
+    public static XpFormula compile(String source) {
+        XpFormula f = CACHE.get(source);
+        if (f == null) {
+            f = new XpFormula(source, new Parser(source).parse());
+            XpFormula prev = CACHE.putIfAbsent(source, f);
+            if (prev != null) f = prev;
+        }
+        return f;
+    }
+
+    public String source() { return source; }
+
+    public double eval(Context c) { return root.eval(c); }
+
+    // -------------------- parser --------------------------------------------
+
+    /** Recursive descent over the source; each level returns a compiled node. */
+    private static final class Parser {
+        private final String s;
+        private int pos;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        Num parse() {
+            Num n = ternary();
+            skip();
+            if (pos < s.length()) throw error("unexpected '" + s.charAt(pos) + "'");
+            return n;
+        }
+
+        private Num ternary() {
+            Num cond = or();
+            if (!eat("?")) return cond;
+            Num a = ternary();
+            expect(":");
+            Num b = ternary();
+            if (cond instanceof Const) return ((Const)cond).v != 0 ? a : b;
+            return c -> cond.eval(c) != 0 ? a.eval(c) : b.eval(c);
+        }
+
+        private Num or() {
+            Num l = and();
+            while (eat("||")) {
+                Num a = l, b = and();
+                l = fold(a, b, c -> (a.eval(c) != 0 || b.eval(c) != 0) ? 1 : 0);
+            }
+            return l;
+        }
+
+        private Num and() {
+            Num l = comparison();
+            while (eat("&&")) {
+                Num a = l, b = comparison();
+                l = fold(a, b, c -> (a.eval(c) != 0 && b.eval(c) != 0) ? 1 : 0);
+            }
+            return l;
+        }
+
+        private Num comparison() {
+            int start = pos;
+            Str ls = stringOperand();
+            if (ls != null) {
+                boolean eq;
+                if (eat("==")) eq = true;
+                else if (eat("!=")) eq = false;
+                else throw error("strings can only be compared with == or !=");
+                Str rs = stringOperand();
+                if (rs == null) throw error("expected a string after " + (eq ? "==" : "!="));
+                return eq ? c -> ls.eval(c).equals(rs.eval(c)) ? 1 : 0
+                          : c -> ls.eval(c).equals(rs.eval(c)) ? 0 : 1;
+            }
+            pos = start;
+
+            Num a = additive();
+            String op = eat("<=") ? "<=" : eat(">=") ? ">=" : eat("==") ? "==" : eat("!=") ? "!="
+                      : eat("<") ? "<" : eat(">") ? ">" : null;
+            if (op == null) return a;
+            Num b = additive();
+            switch (op) {
+                case "<=": return fold(a, b, c -> a.eval(c) <= b.eval(c) ? 1 : 0);
+                case ">=": return fold(a, b, c -> a.eval(c) >= b.eval(c) ? 1 : 0);
+                case "==": return fold(a, b, c -> a.eval(c) == b.eval(c) ? 1 : 0);
+                case "!=": return fold(a, b, c -> a.eval(c) != b.eval(c) ? 1 : 0);
+                case "<":  return fold(a, b, c -> a.eval(c) < b.eval(c) ? 1 : 0);
+                default:   return fold(a, b, c -> a.eval(c) > b.eval(c) ? 1 : 0);
+            }
+        }
+
+        private Num additive() {
+            Num l = multiplicative();
+            while (true) {
+                Num a = l;
+                if (eat("+")) { Num b = multiplicative(); l = fold(a, b, c -> a.eval(c) + b.eval(c)); }
+                else if (eat("-")) { Num b = multiplicative(); l = fold(a, b, c -> a.eval(c) - b.eval(c)); }
+                else return l;
+            }
+        }
+
+        private Num multiplicative() {
+            Num l = unary();
+            while (true) {
+                Num a = l;
+                if (eat("*")) { Num b = unary(); l = fold(a, b, c -> a.eval(c) * b.eval(c)); }
+                else if (eat("/")) { Num b = unary(); l = fold(a, b, c -> a.eval(c) / b.eval(c)); }
+                else return l;
+            }
+        }
+
+        private Num unary() {
+            if (eat("-")) { Num a = unary(); return fold(a, a, c -> -a.eval(c)); }
+            if (peek("!=")) throw error("unexpected '!='");
+            if (eat("!")) { Num a = unary(); return fold(a, a, c -> a.eval(c) != 0 ? 0 : 1); }
+            return primary();
+        }
+
+        private Num primary() {
+            skip();
+            if (eat("(")) {
+                Num n = ternary();
+                expect(")");
+                return n;
+            }
+            if (pos < s.length() && (Character.isDigit(s.charAt(pos)) || s.charAt(pos) == '.')) return number();
+
+            String id = identifier();
+            if (id == null) throw error(pos < s.length() ? "unexpected '" + s.charAt(pos) + "'" : "unexpected end");
+            if (eat("(")) return call(id);
+            switch (id) {
+                case "streak":     return c -> c.streak;
+                case "frequency":  return c -> c.frequency;
+                case "dow":        return c -> c.dow;
+                case "weekend":    return c -> c.dow >= 6 ? 1 : 0;
+                case "focus":      return c -> c.focus ? 1 : 0;
+                case "late":       return c -> c.late ? 1 : 0;
+                case "base_major": return c -> c.baseMajor;
+                case "base_minor": return c -> c.baseMinor;
+                case "type": case "domain": throw error(id + " is a string; compare it with == or !=");
+                default:           throw error("unknown variable '" + id + "'");
+            }
+        }
+
+        private Num call(String fn) {
+            Num a = ternary();
+            Num b = eat(",") ? ternary() : null;
+            expect(")");
+            switch (fn) {
+                case "ln":   arity(fn, b, false); return fold(a, a, c -> Math.log(a.eval(c)));
+                case "sqrt": arity(fn, b, false); return fold(a, a, c -> Math.sqrt(a.eval(c)));
+                case "abs":  arity(fn, b, false); return fold(a, a, c -> Math.abs(a.eval(c)));
+                case "min":  arity(fn, b, true);  return fold(a, b, c -> Math.min(a.eval(c), b.eval(c)));
+                case "max":  arity(fn, b, true);  return fold(a, b, c -> Math.max(a.eval(c), b.eval(c)));
+                case "pow":  arity(fn, b, true);  return fold(a, b, c -> Math.pow(a.eval(c), b.eval(c)));
+                default:     throw error("unknown function '" + fn + "'");
+            }
+        }
+
+        /** A string literal or variable, or null (with pos unchanged) if the next token is not one. */
+        private Str stringOperand() {
+            skip();
+            int start = pos;
+            if (pos < s.length() && s.charAt(pos) == '\'') {
+                int end = s.indexOf('\'', pos + 1);
+                if (end < 0) throw error("unterminated string");
+                String lit = s.substring(pos + 1, end);
+                pos = end + 1;
+                return c -> lit;
+            }
+            String id = identifier();
+            if ("type".equals(id)) return c -> c.type;
+            if ("domain".equals(id)) return c -> c.domain;
+            pos = start;
+            return null;
+        }
+
+        private Num number() {
+            int start = pos;
+            while (pos < s.length() && (Character.isDigit(s.charAt(pos)) || s.charAt(pos) == '.')) pos++;
+            try {
+                return new Const(Double.parseDouble(s.substring(start, pos)));
+            } catch (NumberFormatException e) {
+                pos = start;
+                throw error("bad number");
+            }
+        }
+
+        private String identifier() {
+            skip();
+            int start = pos;
+            while (pos < s.length() && (Character.isLetterOrDigit(s.charAt(pos)) || s.charAt(pos) == '_')) pos++;
+            return pos > start && !Character.isDigit(s.charAt(start)) ? s.substring(start, pos) : null;
+        }
+
+        private void arity(String fn, Num second, boolean wantTwo) {
+            if ((second != null) != wantTwo) throw error(fn + " takes " + (wantTwo ? "two arguments" : "one argument"));
+        }
+
+        private boolean peek(String tok) {
+            skip();
+            return s.startsWith(tok, pos);
+        }
+
+        private boolean eat(String tok) {
+            if (!peek(tok)) return false;
+            pos += tok.length();
+            return true;
+        }
+
+        private void expect(String tok) {
+            if (!eat(tok)) throw error("expected '" + tok + "'");
+        }
+
+        private void skip() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+
+        private IllegalArgumentException error(String msg) {
+            return new IllegalArgumentException("XP formula: " + msg + " at " + pos + " in: " + s);
+        }
+    }
+
+    /** A literal, or a subtree folded to one at compile time. */
+    private static final class Const implements Num {
+        final double v;
+
+        Const(double v) { this.v = v; }
+
+        public double eval(Context c) { return v; }
+    }
+
+    /** node, evaluated once now if its operands a and b are constants. */
+    private static Num fold(Num a, Num b, Num node) {
+        return (a instanceof Const && b instanceof Const) ? new Const(node.eval(null)) : node;
+    }
+}
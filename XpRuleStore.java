@@ -0,0 +1,103 @@
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Reads and edits the xp_rules and xp_formulas tables. Scoring never comes here:
+ * load() builds an XpRules that the caller installs (ProgressService.setRules),
+ * and an edit is followed by a fresh load and swap.
+ */
+public class XpRuleStore {
+
+    private final Database db;
+
+    public XpRuleStore(Database db) {
+        this.db = db;
+    }
+
+    /**
+     * Both tables as an immutable rule set; general rules first, so domain rules can
+     * refer to their type. A stored formula that no longer compiles, or fails
+     * XpRules.check against the rules, is skipped with a warning.
+     */
+    public XpRules load() throws SQLException {
+        return db.read(c -> {
+            XpRules.Builder b = new XpRules.Builder();
+            try (ResultSet rs = db.prepare(c,
+                    "SELECT task_type, COALESCE(domain_id,0), base_major, base_minor, focus_bonus, streak_cap_pct, late_factor " +
+                    "FROM xp_rules ORDER BY domain_id IS NOT NULL, id").executeQuery()) {
+                while (rs.next()) {
+                    b.add(rs.getString(1), rs.getInt(2),
+                          new XpRules.Rule(rs.getInt(3), rs.getInt(4), rs.getDouble(5), rs.getInt(6), rs.getDouble(7)));
+                }
+            }
+            try (ResultSet rs = db.prepare(c, "SELECT id, name FROM domains").executeQuery()) {
+                while (rs.next()) b.domainName(rs.getInt(1), rs.getString(2));
+            }
+            XpRules rules = b.build();
+            try (ResultSet rs = db.prepare(c, "SELECT name, expr FROM xp_formulas WHERE active = 1 ORDER BY id").executeQuery()) {
+                while (rs.next()) {
+                    try {
+                        XpFormula f = XpFormula.compile(rs.getString(2));
+                        rules.check(f);
+                        b.formula(f);
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("Skipping XP formula " + rs.getString(1) + ": " + e.getMessage());
+                    }
+                }
+            }
+            return b.build();
+        });
+    }
+
+    /** Insert or replace the rule for type in domainId (XpRules.ANY_DOMAIN for every domain). */
+    public void put(String type, int domainId, XpRules.Rule rule) throws SQLException {
+        db.runWrite(c -> {
+            PreparedStatement del = db.prepare(c, "DELETE FROM xp_rules WHERE task_type = ? AND COALESCE(domain_id,0) = ?");
+            del.setString(1, type);
+            del.setInt(2, domainId);
+            del.executeUpdate();
+
+            PreparedStatement ins = db.prepare(c,
+                "INSERT INTO xp_rules(task_type,domain_id,base_major,base_minor,focus_bonus,streak_cap_pct,late_factor) " +
+                "VALUES(?,?,?,?,?,?,?)");
+            ins.setString(1, type);
+            if (domainId == XpRules.ANY_DOMAIN) ins.setNull(2, Types.INTEGER);
+            else ins.setInt(2, domainId);
+            ins.setInt(3, rule.baseMajor);
+            ins.setInt(4, rule.baseMinor);
+            ins.setDouble(5, rule.focusBonus);
+            ins.setInt(6, rule.streakCapPct);
+            ins.setDouble(7, rule.lateFactor);
+            ins.executeUpdate();
+        });
+    }
+
+    /**
+     * Insert or replace the formula called name. The expression is compiled and
+     * checked against the current rules first (XpRules.check), so a syntax error or
+     * a negative, non-finite or oversized result throws IllegalArgumentException
+     * and nothing is stored.
+     */
+    public void putFormula(String name, String expr) throws SQLException {
+        load().check(XpFormula.compile(expr));
+        db.runWrite(c -> {
+            PreparedStatement ps = db.prepare(c,
+                "INSERT INTO xp_formulas(name, expr) VALUES(?,?) ON CONFLICT(name) DO UPDATE SET expr = excluded.expr, active = 1");
+            ps.setString(1, name);
+            ps.setString(2, expr);
+            ps.executeUpdate();
+        });
+    }
+
+    /** Turn the formula called name on or off; false if there is no such formula. */
+    public boolean setFormulaActive(String name, boolean active) throws SQLException {
+        return db.write(c -> {
+            PreparedStatement ps = db.prepare(c, "UPDATE xp_formulas SET active = ? WHERE name = ?");
+            ps.setInt(1, active ? 1 : 0);
+            ps.setString(2, name);
+            return ps.executeUpdate() > 0;
+        });
+    }
+}
@@ -0,0 +1,246 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Immutable XP rule set: one Rule per task type, optionally overridden for a single
+ * domain. Built once from the xp_rules table (XpRuleStore) and swapped as a whole
+ * when the rules change, so scoring reads plain fields and never touches the database.
+ *
+ * Task types are numbered by typeCode in the order the rules were added; the
+ * number is only meaningful for the rule set that produced it.
+ *
+ * The set also carries the compiled xp_formulas modifiers and the domain names
+ * they compare against, so a formula edit is swapped in the same way.
+ */
+public final class XpRules {
+
+    public static final int NO_TYPE = -1;
+
+    /** Domain id for a rule that applies to every domain. */
+    public static final int ANY_DOMAIN = 0;
+
+    /** Largest multiplier the formulas may apply, so a runaway formula cannot overflow XP. */
+    public static final double MAX_MODIFIER = 100.0;
+
+    // Inputs check() tries a formula on, besides every weekday and focus/late combination
+    private static final int[] CHECK_STREAKS = {0, 1, 2, 3, 5, 7, 10, 20, 30, 50, 100, 365, 1000};
+    private static final int[] CHECK_FREQUENCIES = {0, 1, 2, 3, 7, 14, 31};
+
+    /** Per-type XP parameters; lateFactor is what a late completion or overdue penalty keeps (0.6 = 40% off). */
+    public static final class Rule {
+        public final int baseMajor, baseMinor;
+        public final double focusBonus;
+        public final int streakCapPct;
+        public final double lateFactor;
+
+        public Rule(int baseMajor, int baseMinor, double focusBonus, int streakCapPct, double lateFactor) {
+            this.baseMajor = baseMajor;
+            this.baseMinor = baseMinor;
+            this.focusBonus = focusBonus;
+            this.streakCapPct = streakCapPct;
+            this.lateFactor = lateFactor;
+        }
+
+        /**
+         * A rule written as "major,minor,focus bonus,streak cap %,late factor", e.g.
+         * "60,30,1.1,20,0.6"; throws IllegalArgumentException("XP rule: ...") if it is not one.
+         */
+        public static Rule parse(String spec) {
+            String[] p = spec.split(",");
+            if (p.length != 5) throw new IllegalArgumentException("XP rule: expected major,minor,focus,streak cap,late in: " + spec);
+            try {
+                Rule r = new Rule(Integer.parseInt(p[0].trim()), Integer.parseInt(p[1].trim()), Double.parseDouble(p[2].trim()),
+                                  Integer.parseInt(p[3].trim()), Double.parseDouble(p[4].trim()));
+                if (r.baseMajor < 0 || r.baseMinor < 0 || r.streakCapPct < 0
+                        || !(r.focusBonus >= 0 && r.focusBonus <= 10) || !(r.lateFactor >= 0 && r.lateFactor <= 1)) {
+                    throw new IllegalArgumentException("XP rule: values out of range in: " + spec);
+                }
+                return r;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("XP rule: bad number in: " + spec);
+            }
+        }
+    }
+
+    /** The built-in rules, also seeded into xp_rules by its migration. */
+    public static final XpRules DEFAULTS = new Builder()
+        .add("quick", ANY_DOMAIN, new Rule(10, 5, 1.1, 20, 0.6))
+        .add("session", ANY_DOMAIN, new Rule(60, 30, 1.1, 20, 0.6))
+        .add("grind", ANY_DOMAIN, new Rule(125, 75, 1.1, 20, 0.6))
+        .build();
+
+    private final String[] types;
+    private final Rule[] byType;           // indexed by type code; null if a type only has domain rules
+    private final long[] overrideKeys;     // sorted key(domainId, type)
+    private final Rule[] overrides;
+    private final XpFormula[] formulas;
+    private final AtomicIntegerArray reported;   // 1 once formulas[i] has been reported bad
+    private final String[] domainNames;    // indexed by domain id
+
+    private XpRules(String[] types, Rule[] byType, long[] overrideKeys, Rule[] overrides,
+                    XpFormula[] formulas, String[] domainNames) {
+        this.types = types;
+        this.byType = byType;
+        this.overrideKeys = overrideKeys;
+        this.overrides = overrides;
+        this.formulas = formulas;
+        this.reported = new AtomicIntegerArray(formulas.length);
+        this.domainNames = domainNames;
+    }
+
+    /** Code for a tasks.type value, or NO_TYPE if there is no rule for it. */
+    public int typeCode(String type) {
+        for (int i = 0; i < types.length; i++) {
+            if (types[i].equals(type)) return i;
+        }
+        return NO_TYPE;
+    }
+
+    /** The rule for type in domainId: the domain's own rule if it has one, else the general one; may be null. */
+    public Rule rule(int type, int domainId) {
+        if (type < 0 || type >= byType.length) return null;
+        if (overrideKeys.length > 0 && domainId != ANY_DOMAIN) {
+            int i = Arrays.binarySearch(overrideKeys, key(domainId, type));
+            if (i >= 0) return overrides[i];
+        }
+        return byType[type];
+    }
+
+    public boolean hasFormulas() {
+        return formulas.length > 0;
+    }
+
+    /**
+     * Product of every formula evaluated on c; 1 when there are none. A formula
+     * result outside [0, MAX_MODIFIER] (NaN and infinities included) counts as 1,
+     * and the product is capped at MAX_MODIFIER. Formulas are checked before they
+     * are installed, so a bad result is rare; each formula is reported the first
+     * time it gives one, not on every completion.
+     */
+    public double modifier(XpFormula.Context c) {
+        double m = 1.0;
+        for (int i = 0; i < formulas.length; i++) {
+            double v = formulas[i].eval(c);
+            if (!isValidModifier(v)) {
+                // check() only tries a sample of inputs, so a stored formula can still misbehave
+                if (reported.compareAndSet(i, 0, 1)) {
+                    System.err.println("XP formula gave " + v + " for a " + c.type + " task, using 1 for its bad results: "
+                        + formulas[i].source());
+                }
+                v = 1.0;
+            }
+            m *= v;
+        }
+        return Math.min(m, MAX_MODIFIER);
+    }
+
+    /**
+     * Throw IllegalArgumentException unless f gives a modifier in [0, MAX_MODIFIER]
+     * for every task type and domain of this set, over a spread of streaks,
+     * frequencies, weekdays and focus/late flags. Run before a formula is stored
+     * or installed.
+     */
+    public void check(XpFormula f) {
+        XpFormula.Context c = new XpFormula.Context();
+        for (int type = 0; type < types.length; type++) {
+            for (int d = 0; d < Math.max(1, domainNames.length); d++) {
+                if (d > 0 && domainNames[d] == null) continue;
+                Rule r = rule(type, d);
+                c.type = types[type];
+                c.domain = domainName(d);
+                c.baseMajor = r == null ? 0 : r.baseMajor;
+                c.baseMinor = r == null ? 0 : r.baseMinor;
+                for (int streak : CHECK_STREAKS) {
+                    for (int frequency : CHECK_FREQUENCIES) {
+                        for (int flags = 0; flags < 28; flags++) {
+                            c.streak = streak;
+                            c.frequency = frequency;
+                            c.dow = flags % 7 + 1;
+                            c.focus = (flags / 7 & 1) != 0;
+                            c.late = (flags / 14 & 1) != 0;
+                            double v = f.eval(c);
+                            if (!isValidModifier(v)) {
+                                throw new IllegalArgumentException("XP formula: gives " + v + " for a " + c.type
+                                    + " task" + (c.domain.isEmpty() ? "" : " in " + c.domain) + " at streak " + streak
+                                    + ", frequency " + frequency + ", dow " + c.dow + (c.focus ? ", focus" : "")
+                                    + (c.late ? ", late" : "") + " in: " + f.source());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isValidModifier(double v) {
+        return v >= 0 && v <= MAX_MODIFIER;   // false for NaN
+    }
+
+    /** Name of a domain as of when the set was built, "" if unknown. */
+    public String domainName(int domainId) {
+        return (domainId >= 0 && domainId < domainNames.length && domainNames[domainId] != null) ? domainNames[domainId] : "";
+    }
+
+    private static long key(int domainId, int type) {
+        return ((long)domainId << 32) | type;
+    }
+
+    /** Collects rules and freezes them into an XpRules; a later add for the same key wins. */
+    public static final class Builder {
+        private final List<String> types = new ArrayList<>();
+        private final List<Rule> general = new ArrayList<>();
+        private final List<Long> keys = new ArrayList<>();
+        private final List<Rule> domainRules = new ArrayList<>();
+        private final List<XpFormula> formulas = new ArrayList<>();
+        private String[] domainNames = new String[0];
+
+        public Builder add(String type, int domainId, Rule rule) {
+            int code = types.indexOf(type);
+            if (code < 0) {
+                code = types.size();
+                types.add(type);
+                general.add(null);
+            }
+            if (domainId == ANY_DOMAIN) {
+                general.set(code, rule);
+            } else {
+                keys.add(key(domainId, code));
+                domainRules.add(rule);
+            }
+            return this;
+        }
+
+        public Builder formula(XpFormula f) {
+            formulas.add(f);
+            return this;
+        }
+
+        public Builder domainName(int domainId, String name) {
+            if (domainId >= domainNames.length) domainNames = Arrays.copyOf(domainNames, domainId + 1);
+            domainNames[domainId] = name;
+            return this;
+        }
+
+        public XpRules build() {
+            Integer[] order = new Integer[keys.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            // stable sort keeps later duplicates after earlier ones, so the last one wins below
+            Arrays.sort(order, (a, b) -> Long.compare(keys.get(a), keys.get(b)));
+
+            long[] k = new long[order.length];
+            Rule[] r = new Rule[order.length];
+            int n = 0;
+            for (Integer i : order) {
+                long key = keys.get(i);
+                if (n > 0 && k[n - 1] == key) n--;
+                k[n] = key;
+                r[n++] = domainRules.get(i);
+            }
+            return new XpRules(types.toArray(new String[0]), general.toArray(new Rule[0]),
+                               Arrays.copyOf(k, n), Arrays.copyOf(r, n),
+                               formulas.toArray(new XpFormula[0]), domainNames.clone());
+        }
+    }
+}
@@ -1,6 +1,6 @@
 @echo off
 set JAVAFX_LIB=javafx-sdk-21.0.7\lib
-javac --module-path "%JAVAFX_LIB%" --add-modules javafx.controls,javafx.graphics,javafx.base -classpath ".;sqlite-jdbc-3.50.3.0.jar" Main.java
+javac --module-path "%JAVAFX_LIB%" --add-modules javafx.controls,javafx.graphics,javafx.base -classpath ".;sqlite-jdbc-3.50.3.0.jar" *.java
 if %ERRORLEVEL% EQU 0 (
     echo Compilation successful!
 ) else (
@@ -0,0 +1,8 @@
+@echo off
+set JAVAFX_LIB=javafx-sdk-21.0.7\lib
+javac --module-path "%JAVAFX_LIB%" --add-modules javafx.controls,javafx.graphics,javafx.base -classpath ".;sqlite-jdbc-3.50.3.0.jar" *.java tests\*.java
+if %ERRORLEVEL% NEQ 0 (
+    echo Compilation failed!
+    exit /b 1
+)
+java --module-path "%JAVAFX_LIB%" --add-modules javafx.controls,javafx.graphics,javafx.base -classpath ".;tests;sqlite-jdbc-3.50.3.0.jar" RunTests
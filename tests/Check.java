@@ -0,0 +1,52 @@
+import java.util.Objects;
+
+/**
+ * The assertions the tests use. A failed check is printed and counted rather
+ * than thrown, so one run reports every failure; RunTests exits non-zero if
+ * any check failed.
+ */
+final class Check {
+
+    private static int checks, failures;
+
+    private Check() {}
+
+    static void isTrue(boolean condition, String what) {
+        checks++;
+        if (!condition) fail(what);
+    }
+
+    static void equal(Object expected, Object actual, String what) {
+        checks++;
+        if (!Objects.equals(expected, actual)) fail(what + ": expected " + expected + ", got " + actual);
+    }
+
+    static void near(double expected, double actual, String what) {
+        checks++;
+        if (!(Math.abs(expected - actual) <= 1e-9 * Math.max(1, Math.abs(expected)))) {
+            fail(what + ": expected " + expected + ", got " + actual);
+        }
+    }
+
+    /** Check that body throws IllegalArgumentException with a message starting with prefix. */
+    static void rejects(Runnable body, String prefix, String what) {
+        checks++;
+        try {
+            body.run();
+            fail(what + ": no exception");
+        } catch (IllegalArgumentException e) {
+            if (e.getMessage() == null || !e.getMessage().startsWith(prefix)) {
+                fail(what + ": unexpected message: " + e.getMessage());
+            }
+        }
+    }
+
+    static void fail(String what) {
+        failures++;
+        System.out.println("  FAILED: " + what);
+    }
+
+    static int checks() { return checks; }
+
+    static int failures() { return failures; }
+}
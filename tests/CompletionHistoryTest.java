@@ -0,0 +1,56 @@
+/** CompletionHistory: streaks, counts and storage, including after the base moves down a word. */
+final class CompletionHistoryTest {
+
+    private CompletionHistoryTest() {}
+
+    static void run() {
+        CompletionHistory h = new CompletionHistory();
+        Check.isTrue(h.isEmpty(), "new history is empty");
+        Check.equal(TaskRepository.NEVER, h.last(), "no last day");
+        Check.equal(0, h.currentStreak(100, 1), "no streak");
+
+        int streak = 0;
+        for (long day = 200; day <= 204; day++) streak = h.add(day, 1, streak);
+        Check.equal(5, streak, "add in order");
+        Check.equal(5, h.currentStreak(204, 1), "current streak");
+        Check.equal(5, h.currentStreak(205, 1), "still current the next day");
+        Check.equal(0, h.currentStreak(206, 1), "broken after a missed day");
+
+        // 200 is in the word starting at 192; these days grow the history down two words
+        for (long day = 120; day <= 199; day++) h.set(day);
+        Check.equal(204L, h.last(), "last day kept after realignment");
+        for (long day = 120; day <= 204; day++) Check.isTrue(h.get(day), "day " + day + " set");
+        Check.isTrue(!h.get(119) && !h.get(205), "days outside the run unset");
+        Check.equal(85, h.currentStreak(204, 1), "streak across word boundaries");
+        Check.equal(85, h.longestStreak(1), "longest streak across word boundaries");
+        Check.equal(30, h.completedOfLast(30, 204), "last 30 days");
+        Check.equal(9, h.countBetween(100, 128), "count from before the base");
+
+        // an out-of-order add recomputes the streak ending at the last day
+        Check.equal(85, h.add(150, 1, 85), "out-of-order add");
+        Check.equal(85, h.add(10, 1, 85), "add far below the base");
+        Check.isTrue(h.get(10), "day below the base set");
+        Check.equal(85, h.longestStreak(1), "isolated day does not join the run");
+
+        CompletionHistory copy = CompletionHistory.fromBytes(h.toBytes());
+        Check.equal(h.last(), copy.last(), "round trip last day");
+        Check.equal(h.countBetween(0, 300), copy.countBetween(0, 300), "round trip count");
+        Check.isTrue(copy.get(10) && copy.get(120) && !copy.get(11), "round trip days");
+        Check.isTrue(CompletionHistory.fromBytes(null).isEmpty(), "null bytes");
+        Check.isTrue(new CompletionHistory().toBytes() == null, "empty history stores null");
+
+        // every third day: a streak for frequency 3, not for frequency 2
+        CompletionHistory spaced = new CompletionHistory();
+        for (long day = 60; day <= 72; day += 3) spaced.set(day);
+        Check.equal(5, spaced.currentStreak(72, 3), "spaced streak");
+        Check.equal(1, spaced.currentStreak(72, 2), "gap too wide for frequency 2");
+        Check.equal(5, spaced.longestStreak(3), "spaced longest streak");
+        Check.equal(0, spaced.currentStreak(76, 3), "spaced streak broken");
+
+        // negative epoch days align to words below zero
+        CompletionHistory early = new CompletionHistory();
+        early.set(-1);
+        early.set(0);
+        Check.equal(2, early.currentStreak(0, 1), "streak across day zero");
+    }
+}
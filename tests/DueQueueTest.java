@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/** DueQueue: earliest-first order with ties to the lower id, moves, removals, and dueThrough. */
+final class DueQueueTest {
+
+    private DueQueueTest() {}
+
+    static void run() {
+        DueQueue q = new DueQueue();
+        Check.equal(-1, q.peekId(), "empty peekId");
+        Check.equal(Long.MAX_VALUE, q.peekDue(), "empty peekDue");
+        Check.equal(0, q.dueThrough(100, new int[4]), "empty dueThrough");
+
+        q.put(7, 20);
+        q.put(3, 10);
+        q.put(5, 10);
+        q.put(1, 30);
+        Check.equal(3, q.peekId(), "tie goes to the lower id");
+        Check.equal(10L, q.peekDue(), "earliest due");
+
+        int[] out = new int[8];
+        int n = q.dueThrough(20, out);
+        Check.equal("[3, 5, 7]", Arrays.toString(Arrays.copyOf(out, n)), "dueThrough order");
+
+        q.put(1, 5);
+        Check.equal(1, q.peekId(), "moved earlier");
+        q.put(1, 40);
+        Check.equal(3, q.peekId(), "moved later");
+        Check.equal(4, q.size(), "a move does not add");
+
+        Check.isTrue(q.remove(3), "remove queued");
+        Check.isTrue(!q.remove(3), "remove twice");
+        Check.isTrue(!q.contains(3), "removed id is gone");
+        Check.equal(5, q.peekId(), "next after remove");
+
+        int[] small = new int[2];
+        Check.equal(3, q.dueThrough(40, small), "count beyond a small buffer");
+        Check.equal("[5, 7]", Arrays.toString(small), "small buffer gets the earliest");
+
+        fuzz();
+    }
+
+    /** Random puts and removes against a sorted reference. */
+    private static void fuzz() {
+        Random r = new Random(42);
+        DueQueue q = new DueQueue();
+        Map<Integer, Long> ref = new HashMap<>();
+        int[] out = new int[300];
+        for (int step = 0; step < 5000; step++) {
+            int id = r.nextInt(300);
+            if (r.nextInt(4) == 0) {
+                Check.equal(ref.remove(id) != null, q.remove(id), "remove " + id + " at step " + step);
+            } else {
+                long due = r.nextInt(60);
+                q.put(id, due);
+                ref.put(id, due);
+            }
+            if (step % 50 == 0) {
+                long day = r.nextInt(60);
+                List<Integer> expected = new ArrayList<>();
+                for (Map.Entry<Integer, Long> e : ref.entrySet()) {
+                    if (e.getValue() <= day) expected.add(e.getKey());
+                }
+                expected.sort((a, b) -> ref.get(a).equals(ref.get(b)) ? a - b : Long.compare(ref.get(a), ref.get(b)));
+                int n = q.dueThrough(day, out);
+                List<Integer> actual = new ArrayList<>();
+                for (int i = 0; i < n; i++) actual.add(out[i]);
+                Check.equal(expected, actual, "dueThrough(" + day + ") at step " + step);
+                Check.equal(ref.size(), q.size(), "size at step " + step);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+/**
+ * HomeListDiff, the keyed edit of the home list: the result equals the target,
+ * unchanged rows are left in place, and a completion touches only the rows it
+ * changes.
+ */
+final class HomeListDiffTest {
+
+    private static final String NO_TASKS = "no-tasks";
+    private static final String COMPLETED_SECTION = "completed-today";
+
+    private HomeListDiffTest() {}
+
+    static void run() {
+        // one completion: task 10 moves to the completed section and task 3's streak changes
+        List<Object> before = new ArrayList<>();
+        for (int id = 1; id <= 500; id++) before.add(due(id, 2));
+        before.add(COMPLETED_SECTION);
+        before.add(done(900, 1));
+        List<Object> after = new ArrayList<>(before);
+        after.remove(9);
+        after.set(2, due(3, 0));
+        after.add(after.size() - 1, done(10, 3));
+
+        ObservableList<Object> items = FXCollections.observableArrayList(before);
+        Object untouched = items.get(0);
+        int[] touched = new int[1];
+        items.addListener((ListChangeListener<Object>) ch -> {
+            while (ch.next()) touched[0] += ch.getAddedSize() + ch.getRemovedSize();
+        });
+        diff(items, after);
+        Check.equal(after, items, "completion");
+        Check.isTrue(items.get(0) == untouched, "unchanged row kept");
+        // removed row, inserted row, and the streak change as a replace (removed + added)
+        Check.equal(4, touched[0], "rows touched by a completion");
+
+        // keyed moves: the same rows in a new order
+        List<Object> order = new ArrayList<>();
+        for (int id = 1; id <= 6; id++) order.add(due(id, 0));
+        ObservableList<Object> moved = FXCollections.observableArrayList(order);
+        List<Object> reversed = new ArrayList<>(order);
+        Collections.reverse(reversed);
+        diff(moved, reversed);
+        Check.equal(reversed, moved, "reversed");
+
+        // nothing in common: replaced in one go
+        ObservableList<Object> fresh = FXCollections.observableArrayList(due(1, 0), due(2, 0));
+        int[] changes = new int[1];
+        fresh.addListener((ListChangeListener<Object>) ch -> changes[0]++);
+        diff(fresh, List.of(NO_TASKS));
+        Check.equal(List.of(NO_TASKS), fresh, "new day");
+        Check.equal(1, changes[0], "new day is one change");
+
+        Random r = new Random(5);
+        for (int iter = 0; iter < 2000; iter++) {
+            List<Object> start = randomItems(r), target = randomItems(r);
+            ObservableList<Object> list = FXCollections.observableArrayList(start);
+            diff(list, target);
+            if (!list.equals(target)) {
+                Check.fail("diff " + start + " -> " + target + " gave " + list);
+                return;
+            }
+        }
+        Check.isTrue(true, "random diffs");
+    }
+
+    private static void diff(ObservableList<Object> items, List<Object> target) {
+        HomeListDiff.apply(items, target);
+    }
+
+    private static TaskViews.DueRow due(int id, int streak) {
+        return new TaskViews.DueRow(id, "task " + id, "quick", streak, streak, 0, false, "Element", false, "Domain", 1);
+    }
+
+    private static TaskViews.DoneRow done(int id, int streak) {
+        return new TaskViews.DoneRow(id, "task " + id, "quick", "Element", "Domain", 1, streak);
+    }
+
+    /** A home list: due rows or the empty message, then maybe the completed section, sometimes shuffled. */
+    private static List<Object> randomItems(Random r) {
+        List<Object> items = new ArrayList<>();
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (int n = r.nextInt(12); ids.size() < n; ) ids.add(r.nextInt(20));
+        for (int id : ids) items.add(due(id, r.nextInt(2)));
+        if (items.isEmpty()) items.add(NO_TASKS);
+        int doneCount = r.nextInt(5);
+        if (doneCount > 0) {
+            items.add(COMPLETED_SECTION);
+            TreeSet<Integer> doneIds = new TreeSet<>();
+            while (doneIds.size() < doneCount) doneIds.add(r.nextInt(20));
+            for (int id : doneIds) items.add(done(id, r.nextInt(2)));
+        }
+        if (r.nextInt(4) == 0) Collections.shuffle(items, r);
+        return items;
+    }
+}
@@ -0,0 +1,135 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+/**
+ * The whole migration chain on a database in the original, unversioned layout:
+ * every step applies, the backfills and the profile XP rescale give the expected
+ * values, the profile triggers keep working, and a second run changes nothing.
+ */
+final class MigrationsTest {
+
+    private static final int LATEST = 11;
+
+    private MigrationsTest() {}
+
+    static void run() throws Exception {
+        Path file = Files.createTempFile("xlog-test", ".db");
+        Files.delete(file);
+        try {
+            createBaseline(file);
+            Database db = Database.open(file, 1);
+            try {
+                Migrations.migrate(db);
+                check(db);
+                Migrations.migrate(db);
+                Check.equal(LATEST, db.read(Migrations::currentVersion), "version after a second run");
+                Check.equal(LATEST, (int) count(db, "SELECT COUNT(*) FROM schema_version"), "each step recorded once");
+            } finally {
+                db.close();
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /** The tables as the app created them before schema versioning, with some data. */
+    private static void createBaseline(Path file) throws SQLException {
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + file); Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE user (id INTEGER PRIMARY KEY CHECK(id=1), name TEXT NOT NULL, created_at TEXT NOT NULL)");
+            st.execute("CREATE TABLE domains (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL UNIQUE)");
+            st.execute("CREATE TABLE elements (id INTEGER PRIMARY KEY AUTOINCREMENT, domain_id INTEGER NOT NULL, "
+                + "name TEXT NOT NULL, is_focus INTEGER NOT NULL DEFAULT 0, xp INTEGER NOT NULL DEFAULT 0, UNIQUE(domain_id, name))");
+            st.execute("CREATE TABLE tasks (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL UNIQUE, type TEXT NOT NULL, "
+                + "frequency INTEGER NOT NULL, major_elem INTEGER NOT NULL, minor_elem INTEGER NOT NULL, last_done TEXT, "
+                + "streak INTEGER NOT NULL DEFAULT 0, active INTEGER NOT NULL DEFAULT 1)");
+            st.execute("CREATE TABLE xp_log (id INTEGER PRIMARY KEY AUTOINCREMENT, date TEXT NOT NULL UNIQUE, profile_xp REAL NOT NULL, "
+                + "domain1_xp REAL NOT NULL, domain2_xp REAL NOT NULL, domain3_xp REAL NOT NULL, domain4_xp REAL NOT NULL)");
+
+            st.execute("INSERT INTO user VALUES (1, 'Tester', '2026-01-01')");
+            st.execute("INSERT INTO domains(name) VALUES ('Body'), ('Mind'), ('Work'), ('Home')");
+            st.execute("INSERT INTO elements(domain_id, name, xp) VALUES (1, 'Strength', 100), (2, 'Focus', 300), "
+                + "(3, 'Craft', 0), (4, 'Order', 50), (4, 'Discipline', 10)");
+            st.execute("INSERT INTO tasks(name, type, frequency, major_elem, minor_elem, last_done, streak) VALUES "
+                + "('run', 'session', 1, 1, 2, '2026-10-10', 3), "
+                + "('read', 'quick', 2, 2, 4, NULL, 0), "
+                + "('clean', 'grind', 7, 5, 4, 'not a date', 0)");
+            st.execute("INSERT INTO xp_log(date, profile_xp, domain1_xp, domain2_xp, domain3_xp, domain4_xp) VALUES "
+                + "('2026-10-01', 100, 100, 100, 100, 100), ('2026-10-02', 0, 0, 100, 100, 100)");
+        }
+    }
+
+    private static void check(Database db) throws SQLException {
+        Check.equal(LATEST, db.read(Migrations::currentVersion), "version");
+
+        // v3: one zero-XP completion per task with a readable last_done
+        long run = LocalDate.parse("2026-10-10").toEpochDay();
+        Check.equal(1L, count(db, "SELECT COUNT(*) FROM task_completions"), "backfilled completions");
+        Check.equal(run, count(db, "SELECT day FROM task_completions WHERE task_id = 1"), "backfilled day");
+        Check.equal(0L, count(db, "SELECT major_xp + minor_xp FROM task_completions"), "backfilled XP");
+
+        // v5 and v10: next due day and history from the completion
+        Check.equal(run + 1, count(db, "SELECT next_due FROM tasks WHERE id = 1"), "next_due after last_done");
+        Check.equal(0L, count(db, "SELECT next_due FROM tasks WHERE id = 2"), "never done is due now");
+        CompletionHistory h = db.read(c -> {
+            try (ResultSet rs = c.createStatement().executeQuery("SELECT history FROM tasks WHERE id = 1")) {
+                rs.next();
+                return CompletionHistory.fromBytes(rs.getBytes(1));
+            }
+        });
+        Check.isTrue(h.get(run) && h.last() == run, "history holds the backfilled day");
+
+        // v4 and v8: totals per domain and the log-space profile XP
+        double[] domainXp = {100, 300, 0, 60};
+        Check.near(profileXp(domainXp), real(db, "SELECT profile_xp FROM profile_totals WHERE id = 1"), "profile XP");
+        Check.equal(4L, count(db, "SELECT domain_count FROM profile_totals WHERE id = 1"), "domain count");
+
+        // v8: the logged profile XP is rescaled to the new formula from the old columns
+        Check.near(profileXp(new double[]{100, 100, 100, 100}),
+            real(db, "SELECT profile_xp FROM xp_log WHERE date = '2026-10-01'"), "rescaled log, even domains");
+        Check.near(profileXp(new double[]{0, 100, 100, 100}),
+            real(db, "SELECT profile_xp FROM xp_log WHERE date = '2026-10-02'"), "rescaled log, one empty domain");
+        Check.equal(8L, count(db, "SELECT COUNT(*) FROM xp_log_domain"), "log domains moved out");
+
+        // v6, v9, v11
+        Check.equal(3L, count(db, "SELECT COUNT(*) FROM xp_rules"), "default XP rules");
+        Check.equal(0L, count(db, "SELECT COUNT(*) FROM achievements"), "no achievements yet");
+        Check.equal(3L, count(db, "SELECT COUNT(*) FROM tasks WHERE recurrence IS NULL"), "interval tasks keep no spec");
+
+        // the triggers follow element XP changes
+        db.runWrite(c -> {
+            try (Statement st = c.createStatement()) {
+                st.executeUpdate("UPDATE elements SET xp = xp + 400 WHERE id = 3");
+            }
+        });
+        domainXp[2] = 400;
+        Check.near(profileXp(domainXp), real(db, "SELECT profile_xp FROM profile_totals WHERE id = 1"), "profile XP after an update");
+    }
+
+    private static double profileXp(double[] domainXp) {
+        double logSum = 0;
+        for (double xp : domainXp) logSum += ProfileXp.term(xp);
+        return ProfileXp.fromLogSum(logSum, domainXp.length);
+    }
+
+    private static long count(Database db, String sql) throws SQLException {
+        return db.read(c -> {
+            try (ResultSet rs = c.createStatement().executeQuery(sql)) {
+                return rs.next() ? rs.getLong(1) : -1L;
+            }
+        });
+    }
+
+    private static double real(Database db, String sql) throws SQLException {
+        return db.read(c -> {
+            try (ResultSet rs = c.createStatement().executeQuery(sql)) {
+                return rs.next() ? rs.getDouble(1) : Double.NaN;
+            }
+        });
+    }
+}
@@ -0,0 +1,105 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The two storage backends agree: the same three weeks of completions, misses
+ * and daily logs through ProgressService leave the SQLite and the in-memory
+ * repositories with the same element XP, profile XP, streaks and due lists.
+ */
+final class RepositoryTest {
+
+    private static final long START = 20000;
+    private static final int ELEMENTS = 4;
+
+    private RepositoryTest() {}
+
+    static void run() throws Exception {
+        InMemoryProfileRepository memProfile = new InMemoryProfileRepository();
+        InMemoryTaskRepository memTasks = new InMemoryTaskRepository(memProfile);
+        for (int d = 1; d <= 2; d++) {
+            int domain = memProfile.addDomain();
+            memProfile.addElement(domain, d == 1);
+            memProfile.addElement(domain, false);
+        }
+        ProgressService mem = new ProgressService(memTasks, memProfile);
+
+        Path file = Files.createTempFile("xlog-test", ".db");
+        Files.delete(file);
+        Database db = Database.open(file, 1);
+        try {
+            Migrations.migrate(db);
+            db.runWrite(c -> {
+                try (Statement st = c.createStatement()) {
+                    st.execute("INSERT INTO user(id, name, created_at) VALUES (1, 'Tester', '2026-01-01')");
+                    st.execute("INSERT INTO domains(name) VALUES ('Body'), ('Mind')");
+                    st.execute("INSERT INTO elements(domain_id, name, is_focus) VALUES "
+                        + "(1, 'Strength', 1), (1, 'Health', 0), (2, 'Focus', 0), (2, 'Craft', 0)");
+                }
+            });
+            ProgressService sql = new ProgressService(new SqliteTaskRepository(db), new SqliteProfileRepository(db));
+
+            for (ProgressService ps : new ProgressService[]{mem, sql}) {
+                db.runWrite(c -> {
+                    TaskRepository tasks = ps.tasks();
+                    tasks.create("daily_login", "quick", 1, 1, 2);
+                    tasks.create("stretch", "quick", 1, 2, 3);
+                    tasks.create("study", "session", 2, 3, 4);
+                    tasks.create("build", "grind", 3, 4, 1);
+                    ps.profile().appendDailyLog(START - 1, 0, new int[0], new double[0], 0);
+                });
+            }
+
+            for (long day = START; day < START + 21; day++) {
+                for (ProgressService ps : new ProgressService[]{mem, sql}) {
+                    long d = day;
+                    db.runWrite(c -> {
+                        if ((d - START) % 4 != 3) ps.complete(2, d, 0);
+                        if ((d - START) % 2 == 0) ps.complete(3, d, 0);
+                        if ((d - START) % 5 == 0) ps.complete(4, d, 0);
+                        ps.logToday(d, 0);
+                    });
+                }
+                String when = "day " + (day - START);
+                Check.equal(ids(memTasks.dueOn(day + 1)), ids(sql.tasks().dueOn(day + 1)), "due after " + when);
+                Check.equal(ids(memTasks.overdueOn(day + 1)), ids(sql.tasks().overdueOn(day + 1)), "overdue after " + when);
+            }
+
+            for (int e = 1; e <= ELEMENTS; e++) {
+                Check.equal(memProfile.elementXp(e), elementXp(db, e), "element " + e + " XP");
+            }
+            Check.near(memProfile.profileXp(), sql.profile().profileXp(), "profile XP");
+            Check.equal(memProfile.lastLoggedDay(), sql.profile().lastLoggedDay(), "last logged day");
+            for (int id = 1; id <= 4; id++) {
+                TaskRepository.Task a = memTasks.find(id), b = sql.tasks().find(id);
+                Check.equal(a.streak, b.streak, "task " + id + " streak");
+                Check.equal(a.lastDone, b.lastDone, "task " + id + " last done");
+                Check.equal(a.nextDue, b.nextDue, "task " + id + " next due");
+                Check.equal(memTasks.history(id).countBetween(START, START + 21),
+                    sql.tasks().history(id).countBetween(START, START + 21), "task " + id + " completed days");
+            }
+        } finally {
+            db.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<Integer> ids(List<TaskRepository.Task> tasks) {
+        List<Integer> ids = new ArrayList<>();
+        for (TaskRepository.Task t : tasks) ids.add(t.id);
+        ids.sort(null);
+        return ids;
+    }
+
+    private static long elementXp(Database db, int id) throws SQLException {
+        return db.read(c -> {
+            try (ResultSet rs = c.createStatement().executeQuery("SELECT xp FROM elements WHERE id = " + id)) {
+                return rs.next() ? rs.getLong(1) : -1L;
+            }
+        });
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Runs every test class and exits with status 1 if a check failed. Built and
+ * started by test.bat; no test framework is needed.
+ */
+public final class RunTests {
+
+    /** A test class's entry point. */
+    interface Test {
+        void run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        run("RepositoryTest", RepositoryTest::run);
+        run("MigrationsTest", MigrationsTest::run);
+        run("XpFormulaTest", XpFormulaTest::run);
+        run("CompletionHistoryTest", CompletionHistoryTest::run);
+        run("DueQueueTest", DueQueueTest::run);
+        run("HomeListDiffTest", HomeListDiffTest::run);
+
+        System.out.println(Check.checks() + " checks, " + Check.failures() + " failed");
+        if (Check.failures() > 0) System.exit(1);
+    }
+
+    private static void run(String name, Test test) {
+        System.out.println(name);
+        try {
+            test.run();
+        } catch (Exception e) {
+            Check.fail(name + " threw " + e);
+            e.printStackTrace(System.out);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/** XpFormula: operators, variables and functions, and the errors for bad source. */
+final class XpFormulaTest {
+
+    private XpFormulaTest() {}
+
+    static void run() {
+        XpFormula.Context c = new XpFormula.Context();
+        c.type = "grind";
+        c.domain = "Fitness";
+        c.streak = 30;
+        c.frequency = 1;
+        c.dow = 6;
+        c.focus = true;
+        c.baseMajor = 125;
+        c.baseMinor = 75;
+
+        Check.near(7, eval("1 + 2 * 3", c), "precedence");
+        Check.near(9, eval("(1 + 2) * 3", c), "parentheses");
+        Check.near(-2, eval("-(1 + 1)", c), "unary minus");
+        Check.near(0.5, eval("1 / 2", c), "division");
+        Check.near(1.25, eval("type == 'grind' && weekend ? 1.25 : 1", c), "string test and weekend");
+        Check.near(1, eval("type != 'grind' || domain == 'Work' ? 2 : 1", c), "string inequality");
+        Check.near(1, eval("focus + late", c), "booleans are 1 and 0");
+        Check.near(1, eval("!late", c), "not");
+        Check.near(0.2, eval("min(streak, 20) / 100", c), "min");
+        Check.near(200, eval("max(base_major, base_minor) + base_minor", c), "max and base XP");
+        Check.near(8, eval("pow(2, 3)", c), "pow");
+        Check.near(Math.log(31), eval("ln(1 + streak)", c), "ln");
+        Check.near(3, eval("sqrt(9) * abs(-1)", c), "sqrt and abs");
+        Check.near(1, eval("dow == 6 && frequency <= 1", c), "comparisons");
+        Check.near(3, eval("1 ? 2 ? 3 : 4 : 5", c), "nested ternary");
+
+        c.dow = 3;
+        Check.near(1, eval("type == 'grind' && weekend ? 1.25 : 1", c), "weekday");
+
+        String src = "1 + streak / 100";
+        Check.isTrue(XpFormula.compile(src) == XpFormula.compile(src), "compiled formulas are cached by source");
+        Check.equal(src, XpFormula.compile(src).source(), "source");
+
+        // modifier(): a bad result counts as 1 and the product is capped
+        XpRules rules = new XpRules.Builder()
+            .add("grind", XpRules.ANY_DOMAIN, new XpRules.Rule(125, 75, 1.1, 20, 0.6))
+            .formula(XpFormula.compile("streak - 5"))
+            .formula(XpFormula.compile("streak"))
+            .build();
+        c.streak = 2;
+        Check.near(2, rules.modifier(c), "negative result counts as 1");
+        c.streak = 8;
+        Check.near(24, rules.modifier(c), "product of formulas");
+        c.streak = 50;
+        Check.near(XpRules.MAX_MODIFIER, rules.modifier(c), "capped product");
+        Check.rejects(() -> rules.check(XpFormula.compile("streak - 5")), "XP formula: ", "check finds a bad result");
+
+        rejects("1 +");
+        rejects("");
+        rejects("1 2");
+        rejects("(1");
+        rejects("foo");
+        rejects("bar(1)");
+        rejects("min(1)");
+        rejects("ln(1, 2)");
+        rejects("type + 1");
+        rejects("type == 3");
+        rejects("'abc");
+        rejects("1 != 'x'");
+        rejects("1 ? 2");
+    }
+
+    private static double eval(String source, XpFormula.Context c) {
+        return XpFormula.compile(source).eval(c);
+    }
+
+    private static void rejects(String source) {
+        Check.rejects(() -> XpFormula.compile(source), "XP formula: ", "rejects \"" + source + "\"");
+    }
+}